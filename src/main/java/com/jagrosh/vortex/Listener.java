@@ -18,19 +18,30 @@ package com.jagrosh.vortex;
 import com.jagrosh.vortex.logging.MessageCache.CachedMessage;
 import com.jagrosh.vortex.utils.FormatUtil;
 import net.dv8tion.jda.api.JDA.ShardInfo;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
 import net.dv8tion.jda.api.events.channel.update.ChannelUpdateSlowmodeEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateTopicEvent;
 import net.dv8tion.jda.api.events.guild.GuildAuditLogEntryCreateEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
 import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameEvent;
+import net.dv8tion.jda.api.events.guild.override.GenericPermissionOverrideEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateOwnerEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
 import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePositionEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.events.user.update.UserUpdateAvatarEvent;
 import net.dv8tion.jda.api.events.user.update.UserUpdateDiscriminatorEvent;
@@ -43,6 +54,7 @@ import org.slf4j.LoggerFactory;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -68,17 +80,17 @@ public class Listener implements EventListener {
                     vortex.getMessageCache().putMessage(m);
 
                     // Run automod on the message
-                    vortex.getAutoMod().performAutomod(m);
+                    vortex.getAutoMod().queueAutomod(m);
                 }
             } case MessageUpdateEvent event -> {
                 Message m = event.getMessage();
                 if (!m.getAuthor().isBot() && m.isFromGuild()) // ignore bot edits
                 {
                     // Run automod on the message
-                    vortex.getAutoMod().performAutomod(m);
+                    vortex.getAutoMod().queueAutomod(m);
 
                     // Store and log the edit
-                    CachedMessage old = vortex.getMessageCache().putMessage(m);
+                    CachedMessage old = vortex.getMessageCache().updateMessage(m);
                     vortex.getBasicLogger().logMessageEdit(m, old);
                 }
             } case MessageDeleteEvent event -> {
@@ -107,6 +119,21 @@ public class Listener implements EventListener {
             case GuildMemberRemoveEvent event -> {
                 // Log the member leaving
                 vortex.getBasicLogger().logGuildLeave(event);
+                vortex.getAutoMod().getExemptions().invalidate(event.getGuild(), event.getUser().getIdLong());
+            }
+            // Roles and permissions that automod exemptions depend on
+            case GuildMemberRoleAddEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild(), event.getMember().getIdLong());
+            case GuildMemberRoleRemoveEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild(), event.getMember().getIdLong());
+            case RoleUpdatePermissionsEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            case RoleUpdatePositionEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            case RoleDeleteEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            case GenericPermissionOverrideEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            case GuildUpdateOwnerEvent event -> vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            case GuildLeaveEvent event -> {
+                // Forget what automod kept about the guild
+                vortex.getAutoMod().getExemptions().remove(event.getGuild().getIdLong());
+                vortex.getAutoMod().getJoinRates().remove(event.getGuild().getIdLong());
+                vortex.getAutoMod().getChannelFlags().removeGuild(event.getGuild().getIdLong());
             }
             case UserUpdateNameEvent event -> {
                 // Log the name change
@@ -116,7 +143,7 @@ public class Listener implements EventListener {
                 vortex.getBasicLogger().logNameChange(u, oldUsername, newUsername);
 
                 // Dehoist
-                event.getUser().getMutualGuilds().stream().map(g -> g.getMember(event.getUser())).forEach(m -> vortex.getAutoMod().dehoist(m));
+                vortex.getAutoMod().dehoist(event.getUser());
             }
             case UserUpdateDiscriminatorEvent event -> {
                 // Log the name change
@@ -142,6 +169,8 @@ public class Listener implements EventListener {
                 // TODO: Check if this logic is correct, no funky thread things etc.
                 vortex.getDatabase().tempslowmodes.clearSlowmode(event.getChannel().asTextChannel());
             }
+            case ChannelUpdateTopicEvent event -> vortex.getAutoMod().getChannelFlags().update(event.getGuild().getIdLong(), event.getChannel().getIdLong(), event.getNewValue());
+            case ChannelDeleteEvent event -> vortex.getAutoMod().getChannelFlags().remove(event.getChannel().getIdLong());
             case GuildAuditLogEntryCreateEvent event -> {
                 vortex.getAuditLogReader().parseEntry(event.getEntry());
             }
@@ -151,12 +180,17 @@ public class Listener implements EventListener {
                 String shardinfo = si == null ? "N/A" : (si.getShardId() + 1) + "/" + si.getShardTotal();
                 LOG.info("Shard " + shardinfo + " is ready.");
 
+                // Cache the settings of every guild up front, before the events of the shard are handled
+                Set<Long> guildIds = event.getJDA().getGuildCache().stream().map(Guild::getIdLong).collect(Collectors.toSet());
+                LOG.info(vortex.getDatabase().preload(guildIds));
+
                 // TODO: Make sure gravels and mutes are checked from before the bot is on
                 vortex.getLogWebhook().send("\uD83C\uDF00 Shard `" + shardinfo + "` has connected. Guilds: `" // 🌀
                         + genericEvent.getJDA().getGuildCache().size() + "` Users: `" + genericEvent.getJDA().getUserCache().size() + "`");
                 vortex.getThreadpool().scheduleWithFixedDelay(vortex.getAutoMod()::checkAutoPardons, 0, 45, TimeUnit.SECONDS); // TODO: Maybe make unban checking less frequent
                 vortex.getThreadpool().scheduleWithFixedDelay(() -> vortex.getDatabase().tempslowmodes.checkSlowmode(genericEvent.getJDA()), 0, 45, TimeUnit.SECONDS);
                 vortex.getThreadpool().execute(() -> vortex.getAuditLogReader().start());
+                vortex.getThreadpool().execute(() -> vortex.getMemberJobs().resume(event.getJDA()));
             }
             default -> {}
         }
@@ -23,6 +23,7 @@ import com.jagrosh.jdautilities.command.CommandClientBuilder;
 import com.jagrosh.jdautilities.command.SlashCommand;
 import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
 import com.jagrosh.vortex.automod.AutoMod;
+import com.jagrosh.vortex.automod.MemberJobs;
 import com.jagrosh.vortex.commands.CommandExceptionListener;
 import com.jagrosh.vortex.commands.automod.*;
 import com.jagrosh.vortex.commands.general.*;
@@ -84,6 +85,7 @@ public class Vortex {
     private final @Getter MessageCache messageCache;
     private final @Getter WebhookClient logWebhook;
     private final @Getter AutoMod autoMod;
+    private final @Getter MemberJobs memberJobs;
     private final @Getter CommandExceptionListener listener;
 
     static {
@@ -150,7 +152,7 @@ public class Vortex {
                 // Tools
                 new AnnounceCmd(),
                 new AuditCmd(),
-                new DehoistCmd(),
+                new DehoistCmd(this),
              // new InvitepruneCmd(this),
                 new LookupCmd(this),
                 new TagCmd(this),
@@ -170,9 +172,10 @@ public class Vortex {
         textUploader = new TextUploader(config.getStringList("upload-webhooks"));
         auditLogReader = new AuditLogReader(this);
         basicLogger = new ModlogGenerator(this, config);
-        messageCache = new MessageCache();
+        messageCache = new MessageCache(config);
         logWebhook = new WebhookClientBuilder(config.getString("webhook-url")).build();
         autoMod = new AutoMod(this, config);
+        memberJobs = new MemberJobs(this, config);
         listener = new CommandExceptionListener();
         CommandClient client = new CommandClientBuilder()
                 .setPrefix(Constants.PREFIX)
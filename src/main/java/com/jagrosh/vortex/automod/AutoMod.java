@@ -21,13 +21,14 @@ import com.jagrosh.vortex.automod.URLResolver.ActiveURLResolver;
 import com.jagrosh.vortex.automod.URLResolver.DummyURLResolver;
 import com.jagrosh.vortex.database.managers.AutomodManager;
 import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
+import com.jagrosh.vortex.database.managers.FilterManager.Filters;
 import com.jagrosh.vortex.database.managers.GuildSettingsDataManager;
+import com.jagrosh.vortex.database.managers.IgnoreManager;
 import com.jagrosh.vortex.hibernate.api.ModlogManager;
 import com.jagrosh.vortex.hibernate.entities.BanLog;
 import com.jagrosh.vortex.hibernate.entities.GravelLog;
 import com.jagrosh.vortex.hibernate.entities.MuteLog;
 import com.jagrosh.vortex.hibernate.entities.TimedLog;
-import com.jagrosh.vortex.logging.MessageCache.CachedMessage;
 import com.jagrosh.vortex.utils.*;
 import com.typesafe.config.Config;
 import jakarta.persistence.Persistence;
@@ -47,42 +48,65 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * @author John Grosh (jagrosh)
  */
 @Slf4j
 public class AutoMod {
-    private static final Pattern INVITES = Pattern.compile("discord\\s?(?:(?:\\.|dot|\\(\\.\\)|\\(dot\\))\\s?gg|(?:app)?\\s?\\.\\s?com\\s?/\\s?invite)\\s?/\\s?([A-Z0-9-]{2,18})", Pattern.CASE_INSENSITIVE);
     private static final Pattern REF = Pattern.compile("https?://\\S+(?:/ref/|[?&#]ref(?:errer|erral)?=)\\S+", Pattern.CASE_INSENSITIVE);
-    private static final Pattern BASE_URL = Pattern.compile("https?://(?:[^?&:/\\s]+\\.)?([^?&:/\\s]+\\.\\w+)(?:\\W|$)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern LINK = Pattern.compile("https?://\\S+", Pattern.CASE_INSENSITIVE);
     private static final String INVITE_LINK = "https?://discord(?:app\\.com/invite|\\.com/invite|\\.gg)/(\\S+)";
-    private static final String CONDENSER = "(.+?)\\s*(\\1\\s*)+";
     private static final Logger LOG = LoggerFactory.getLogger("AutoMod");
     public static final String RESTORE_MUTE_ROLE_AUDIT = "Restoring Muted Role";
     public static final String RESTORE_GRAVEL_ROLE_AUDIT = "Restoring Gravel Role";
+    public static final String DELETE_AUDIT = "Automod";
+    // TODO: Implement. Until then messages aren't queued or checked, and only replays reach the checks
+    private static final boolean CHECK_MESSAGES = false;
 
     private final Vortex vortex;
+    private final AutomodData data;
 
-    private String[] refLinkList;
+    private volatile DomainIndex referralDomains = DomainIndex.EMPTY;
     private final URLResolver urlResolver;
-    private final InviteResolver inviteResolver = new InviteResolver();
+    private final InviteResolver inviteResolver;
     private final CopypastaResolver copypastaResolver = new CopypastaResolver();
-    private final FixedCache<String, DupeStatus> spams = new FixedCache<>(3000);
-    private final HashMap<Long, OffsetDateTime> latestGuildJoin = new HashMap<>();
+    private final DuplicateTracker duplicates;
+    private final JoinRateTracker joinRates = new JoinRateTracker();
+    private final ChannelFlags channelFlags = new ChannelFlags();
+    private final ExemptionCache exemptions;
     private final Usage usage = new Usage();
+    private final LaneExecutor lanes;
+    private final DeletionCoalescer deletions;
+    private final AutomodPipeline pipeline = new AutomodPipeline(List.of(new AntiDuplicateCheck(), new UserMentionCheck(), new MaxLinesCheck(), new RoleMentionCheck(), new FilterCheck(), new ReferralCheck(), new CopypastaCheck(), new InviteCheck()));
 
     public AutoMod(Vortex vortex, Config config) {
+        this(vortex, AutomodData.of(vortex.getDatabase()), vortex.getDatabase().ignores, config, vortex.getThreadpool());
+    }
+
+    /**
+     * Creates an {@link AutoMod}
+     * @param vortex The bot, or null if messages will only be {@link #evaluate(AutomodContext) evaluated}, such as when
+     *               they are being replayed
+     * @param data Where to read the settings of guilds from
+     * @param ignores The ignored roles and channels, or null if nobody is ever exempt, such as in a replay
+     * @param config The config
+     * @param executor The executor to delete messages on
+     */
+    AutoMod(Vortex vortex, AutomodData data, IgnoreManager ignores, Config config, ScheduledExecutorService executor) {
         this.vortex = vortex;
+        this.data = data;
         this.urlResolver = config.getBoolean("url-resolver.active") ? new ActiveURLResolver(config) : new DummyURLResolver();
+        this.inviteResolver = new InviteResolver(config);
+        this.duplicates = new DuplicateTracker(config.getInt("automod.duplicate-cache-size"), config.getDuration("automod.duplicate-window", TimeUnit.MILLISECONDS));
+        this.lanes = new LaneExecutor("automod", config.getInt("automod.lanes"), config.getInt("automod.queue-size"));
+        this.deletions = new DeletionCoalescer(executor, config.getDuration("automod.deletion-window", TimeUnit.MILLISECONDS), config.getInt("automod.deletion-backlog"));
+        this.exemptions = new ExemptionCache(ignores, config.getInt("automod.exemption-cache-size"));
         loadCopypastas();
         loadReferralDomains();
     }
@@ -96,7 +120,7 @@ public class AutoMod {
     }
 
     public final void loadReferralDomains() {
-        this.refLinkList = OtherUtil.readLines("referral_domains");
+        this.referralDomains = new DomainIndex(OtherUtil.readLines("referral_domains"));
     }
 
     public void enableRaidMode(Guild guild, Member moderator, OffsetDateTime now, String reason) {
@@ -216,13 +240,15 @@ public class AutoMod {
         boolean inRaidMode = vortex.getDatabase().settings.getSettings(event.getGuild()).isInRaidMode();
         AutomodSettings ams = vortex.getDatabase().automod.getSettings(event.getGuild());
         OffsetDateTime now = OffsetDateTime.now();
+        long nowMillis = now.toInstant().toEpochMilli();
+        long previousJoin = joinRates.recordJoin(event.getGuild().getIdLong(), nowMillis, ams.useAutoRaidMode() ? ams.raidmodeNumber : 1);
         boolean kicking = false;
 
         // if we're in raid mode...
         if (inRaidMode) {
             // ...and this server uses auto raid mode, check if we should be turning it off automatically
             // this means that we should turn it off if the latest attempted join was more than 2 minutes ago
-            if (ams.useAutoRaidMode() && latestGuildJoin.containsKey(event.getGuild().getIdLong()) && latestGuildJoin.get(event.getGuild().getIdLong()).until(now, ChronoUnit.SECONDS) > 120) {
+            if (ams.useAutoRaidMode() && previousJoin != -1 && TimeUnit.MILLISECONDS.toSeconds(nowMillis - previousJoin) > 120) {
                 disableRaidMode(event.getGuild(), event.getGuild().getSelfMember(), now, "No recent join attempts");
             }
             // otherwise, boot 'em
@@ -230,10 +256,8 @@ public class AutoMod {
                 kicking = true;
             }
         } else if (ams.useAutoRaidMode()) { // now, if we're not in raid mode, and auto mode is enabled
-            // find the time that we should be looking after, and count the number of people that joined after that
-            OffsetDateTime min = event.getMember().getTimeJoined().minusSeconds(ams.raidmodeTime);
-            long recent = event.getGuild().getMemberCache().stream().filter(m -> !m.getUser().isBot() && m.getTimeJoined().isAfter(min)).count();
-            if (recent >= ams.raidmodeNumber) {
+            // check if enough people joined within the window, counting this join
+            if (joinRates.hasJoinsSince(event.getGuild().getIdLong(), ams.raidmodeNumber, nowMillis - TimeUnit.SECONDS.toMillis(ams.raidmodeTime))) {
                 enableRaidMode(event.getGuild(), event.getGuild().getSelfMember(), now, "Maximum join rate exceeded (" + ams.raidmodeNumber + "/" + ams.raidmodeTime + "s)");
                 kicking = true;
             }
@@ -261,8 +285,6 @@ public class AutoMod {
 
             dehoist(event.getMember());
         }
-
-        latestGuildJoin.put(event.getGuild().getIdLong(), now);
     }
 
 
@@ -272,32 +294,7 @@ public class AutoMod {
             return false;
         }
 
-        // ignore broken guilds
-        if (member.getGuild().getOwner() == null) {
-            return false;
-        }
-
-        // ignore bots
-        if (member.getUser().isBot()) {
-            return false;
-        }
-
-        // ignore users vortex cant interact with
-        if (!member.getGuild().getSelfMember().canInteract(member)) {
-            return false;
-        }
-
-        // ignore users that can kick, ban, or manage server
-        if (member.hasPermission(Permission.KICK_MEMBERS) || member.hasPermission(Permission.BAN_MEMBERS) || member.hasPermission(Permission.MANAGE_SERVER)) {
-            return false;
-        }
-
-        // if a channel is specified, ignore users that can manage messages in that channel
-        if (channel != null && (member.hasPermission(channel, Permission.MESSAGE_MANAGE) || vortex.getDatabase().ignores.isIgnored(channel))) {
-            return false;
-        }
-
-        return !vortex.getDatabase().ignores.isIgnored(member);
+        return exemptions.shouldPerformAutomod(member, channel);
     }
 
     public void dehoist(Member member) {
@@ -321,8 +318,38 @@ public class AutoMod {
         }
     }
 
+    /**
+     * Dehoists a user in every guild they share with the bot, off of the thread that called this. Every guild is handled
+     * in its own automod lane.
+     * @param user The user
+     */
+    public void dehoist(User user) {
+        vortex.getThreadpool().execute(() -> {
+            for (Guild guild : user.getMutualGuilds()) {
+                Member member = guild.getMember(user);
+                if (member != null) {
+                    lanes.execute(guild.getIdLong(), () -> dehoist(member));
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues automod to be performed on a message, off of the thread that received it. Messages from the same guild are
+     * checked in the order they were queued.
+     * @param message The message
+     * @return False if automod was too overloaded to queue the message
+     */
+    public boolean queueAutomod(Message message) {
+        if (!CHECK_MESSAGES) {
+            return true;
+        }
+
+        return lanes.execute(message.getGuild().getIdLong(), () -> performAutomod(message));
+    }
+
     public void performAutomod(Message message) {
-        if (true) { // TODO: Implement
+        if (!CHECK_MESSAGES) {
             return;
         }
 
@@ -332,259 +359,376 @@ public class AutoMod {
         }
 
         //get the settings
-        AutomodSettings settings = vortex.getDatabase().automod.getSettings(message.getGuild());
+        AutomodSettings settings = data.getSettings(message.getGuild());
         if (settings == null) {
             return;
         }
 
-        // check the channel for channel-specific settings
-        String topic = message.getChannel().asTextChannel().getTopic();
-        boolean preventSpam = topic == null || !topic.toLowerCase().contains("{spam}");
-        boolean preventInvites = (topic == null || !topic.toLowerCase().contains("{invites}")) && settings.filterInvites;
-
-        List<Long> inviteWhitelist = !preventInvites ? Collections.emptyList() : vortex.getDatabase().inviteWhitelist.readWhitelist(message.getGuild());
         usage.increment(message.getGuild().getIdLong());
+        AutomodContext context = new AutomodContext(message, settings, data, channelFlags);
+        evaluate(context);
+        act(context);
+    }
+
+    /**
+     * Runs every check on a message and reaches a verdict, without acting on it
+     * @param context The context of the message to check
+     */
+    public void evaluate(AutomodContext context) {
+        pipeline.evaluate(context);
+    }
+
+    private void act(AutomodContext context) {
+        Message message = context.getMessage();
+        AutomodSettings settings = context.getSettings();
+
+        // delete the message if applicable
+        if (context.shouldDelete()) {
+            deletions.delete(message, DELETE_AUDIT);
+        }
 
-        boolean shouldDelete = false;
-        String channelWarning = null;
-        StringBuilder reason = new StringBuilder();
-
-        // anti-duplicate
-        if (settings.useAntiDuplicate() && preventSpam) {
-            String key = message.getAuthor().getId() + "|" + message.getGuild().getId();
-            String content = condensedContent(message);
-            DupeStatus status = spams.get(key);
-            if (status == null) {
-                spams.put(key, new DupeStatus(content, latestTime(message)));
-            } else {
-                OffsetDateTime now = latestTime(message);
-                int offenses = status.update(content, now);
-
-                if (offenses == settings.dupeDeleteThresh) {
-                    channelWarning = "Please stop spamming.";
-                    purgeMessages(message.getGuild(), m -> m.getAuthorId() == message.getAuthor().getIdLong() && m.getTimeCreated().plusMinutes(2).isAfter(now));
-                } else if (offenses > settings.dupeDeleteThresh) {
-                    shouldDelete = true;
+        // some verdicts, such as invites that aren't cached yet, come in later
+        if (!context.shouldDelete() && !context.getDeferred().isEmpty()) {
+            List<CompletableFuture<String>> deferred = context.getDeferred();
+            CompletableFuture.allOf(deferred.toArray(CompletableFuture[]::new)).thenRun(() -> {
+                if (deferred.stream().map(CompletableFuture::join).anyMatch(Objects::nonNull)) {
+                    deletions.delete(message, DELETE_AUDIT);
                 }
-            }
+            });
         }
 
-        // anti-mention (users)
-        if (settings.maxMentions >= AutomodManager.MENTION_MINIMUM) {
+        // delete the recent messages of a spammer
+        if (context.getPurgeSince() != null) {
+            purgeMessages(message.getGuild(), message.getAuthor().getIdLong(), context.getPurgeSince().minusMinutes(2));
+        }
 
-            long mentions = message.getMentions().getUsers().stream().filter(u -> !u.isBot() && !u.equals(message.getAuthor())).distinct().count();
-            if (mentions > settings.maxMentions) {
-                reason.append(", Mentioning ").append(mentions).append(" users");
-                shouldDelete = true;
-            }
+        // send a short 'warning' message that self-deletes
+        if (context.getChannelWarning() != null && message.getGuild().getSelfMember().hasPermission(message.getChannel().asTextChannel(), Permission.MESSAGE_SEND)) {
+            message.getChannel().sendMessage(message.getAuthor().getAsMention() + Constants.WARNING + " " + context.getChannelWarning()).queue(m -> m.delete().queueAfter(2500, TimeUnit.MILLISECONDS, s -> {}, f -> {}), f -> {});
         }
 
-        // max newlines
-        if (settings.maxLines > 0 && preventSpam) {
-            int count = message.getContentRaw().split("\n").length;
-            if (count > settings.maxLines) {
-                reason.append(", Message contained ").append(count).append(" newlines");
-                shouldDelete = true;
+        // now, lets resolve links, but async
+        boolean preventInvites = context.preventInvites();
+        if (!context.shouldDelete() && settings.resolveUrls && (preventInvites || settings.filterRefs)) {
+            List<MessageFeatures.Link> links = context.getFeatures().getLinks();
+            if (!links.isEmpty()) {
+                LongSet inviteWhitelist = context.getInviteWhitelist();
+                List<CompletableFuture<ResolvedLink>> resolving = new ArrayList<>(links.size());
+                for (MessageFeatures.Link link : links) {
+                    resolving.add(urlResolver.findRedirectsAsync(link.url()).thenCompose(redirects -> checkRedirects(message, link.url(), redirects, preventInvites, settings.filterRefs, inviteWhitelist)));
+                }
+
+                CompletableFuture.allOf(resolving.toArray(CompletableFuture[]::new)).thenRun(() -> {
+                    List<ResolvedLink> resolved = resolving.stream().map(CompletableFuture::join).toList();
+                    boolean containsInvite = resolved.stream().anyMatch(ResolvedLink::invite);
+                    boolean containsRef = resolved.stream().anyMatch(ResolvedLink::ref);
+                    if (containsInvite || containsRef) {
+                        ResolvedLink offending = resolved.stream().filter(link -> link.invite() || link.ref()).findFirst().get();
+                        vortex.getBasicLogger().logRedirectPath(message, offending.link(), offending.redirects());
+                        String reason = ((containsInvite ? ", Advertising (Resolved Link)" : "") + (containsRef ? ", Referral Link (Resolved Link)" : "")).substring(2);
+                        deletions.delete(message, reason);
+                    }
+                });
             }
         }
+    }
 
-        // anti-mention (roles)
-        if (settings.maxRoleMentions >= AutomodManager.ROLE_MENTION_MINIMUM) {
-            long mentions = message.getMentions().getRoles().stream().distinct().count();
-            if (mentions > settings.maxRoleMentions) {
-                reason.append(", Mentioning ").append(mentions).append(" roles");
-                shouldDelete = true;
+    private CompletableFuture<ResolvedLink> checkRedirects(Message message, String link, List<String> redirects, boolean preventInvites, boolean filterRefs, LongSet inviteWhitelist) {
+        boolean containsRef = false;
+        List<CompletableFuture<Long>> invites = new ArrayList<>();
+        for (String resolved : redirects) {
+            if (preventInvites && resolved.matches(INVITE_LINK)) {
+                String code = resolved.replaceAll(INVITE_LINK, "$1");
+                LOG.info("Delayed resolving invite in " + message.getGuild().getId() + ": " + code);
+                invites.add(inviteResolver.resolve(code, message.getJDA()));
             }
-        }
 
-        // filters
-        Filter badWordsFilter = vortex.getDatabase().filters.getBadWordsFilter(message.getGuild().getIdLong());
-        Filter veryBadWordsFilter = vortex.getDatabase().filters.getVeryBadWordsFilter(message.getGuild().getIdLong());
-        if (veryBadWordsFilter != null && veryBadWordsFilter.test(message.getContentRaw())) {
-            shouldDelete = true;
-            reason.append(", Very Bad Words Filter");
-        } else if (badWordsFilter != null && badWordsFilter.test(message.getContentRaw())) {
-            shouldDelete = true;
-            reason.append(", Bad Words Filter");
-        }
-
-        // prevent referral links
-        if (settings.filterRefs) {
-            Matcher m = REF.matcher(message.getContentRaw());
-            if (m.find()) {
-                reason.append(", Referral link");
-                shouldDelete = true;
-            } else {
-                m = BASE_URL.matcher(message.getContentRaw().toLowerCase());
-                while (m.find()) {
-                    if (isReferralUrl(m.group(1))) {
-                        reason.append(", Referral link");
-                        shouldDelete = true;
-                        break;
-                    }
-                }
+            if (filterRefs && (resolved.matches(REF.pattern()) || referralDomains.matches(DomainIndex.hostOf(resolved)))) {
+                containsRef = true;
             }
         }
 
-        // prevent copypastas
-        if (settings.filterCopypastas && preventSpam) {
-            String copypastaName = copypastaResolver.getCopypasta(message.getContentRaw());
-            if (copypastaName != null) {
-                reason.append(", ").append(copypastaName).append(" copypasta");
-                shouldDelete = true;
-            }
+        boolean ref = containsRef;
+        return CompletableFuture.allOf(invites.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            boolean invite = invites.stream().map(CompletableFuture::join).anyMatch(gid -> gid != InviteResolver.UNRESOLVED && gid != message.getGuild().getIdLong() && !inviteWhitelist.contains(gid));
+            return new ResolvedLink(link, redirects, invite, ref);
+        });
+    }
+
+    public AutomodPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public URLResolver getUrlResolver() {
+        return urlResolver;
+    }
+
+    public InviteResolver getInviteResolver() {
+        return inviteResolver;
+    }
+
+    public ChannelFlags getChannelFlags() {
+        return channelFlags;
+    }
+
+    public JoinRateTracker getJoinRates() {
+        return joinRates;
+    }
+
+    public ExemptionCache getExemptions() {
+        return exemptions;
+    }
+
+    public DeletionCoalescer getDeletions() {
+        return deletions;
+    }
+
+    public LaneExecutor getLanes() {
+        return lanes;
+    }
+
+    private class AntiDuplicateCheck extends AutomodCheck {
+        private AntiDuplicateCheck() {
+            super("Anti-Duplicate", Cost.MODERATE);
         }
 
-        // anti-invite
-        if (preventInvites) {
-            List<String> invites = new ArrayList<>();
-            Matcher m = INVITES.matcher(message.getContentRaw());
-            while (m.find()) {
-                invites.add(m.group(1));
-            }
+        @Override
+        public boolean isStateful() {
+            return true;
+        }
 
-            LOG.trace("Found " + invites.size() + " invites.");
-            for (String inviteCode : invites) {
-                LOG.info("Resolving invite in " + message.getGuild().getId() + ": " + inviteCode);
-                long gid = inviteResolver.resolve(inviteCode, message.getJDA());
-                if (gid != message.getGuild().getIdLong() && !inviteWhitelist.contains(gid)) {
-                    reason.append(", Advertising");
-                    shouldDelete = true;
-                    break;
-                }
-            }
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.getSettings().useAntiDuplicate() && context.preventSpam();
         }
 
-        // delete the message if applicable
-        if (shouldDelete) {
-            try {
-                message.delete().reason("Automod").queue(v -> {}, f -> {});
-            } catch (PermissionException ignore) {
+        @Override
+        public boolean check(AutomodContext context) {
+            Message message = context.getMessage();
+            OffsetDateTime now = latestTime(message);
+            int offenses = duplicates.record(message.getGuild().getIdLong(), message.getAuthor().getIdLong(), condensedContent(context.getFeatures()), now.toInstant().toEpochMilli());
+            int thresh = context.getSettings().dupeDeleteThresh;
+            if (offenses == thresh) {
+                context.setChannelWarning("Please stop spamming.");
+                context.setPurgeSince(now);
+                return true;
+            } else if (offenses > thresh) {
+                context.flag("Duplicate messages");
+                return true;
             }
+
+            return false;
         }
+    }
 
-        // send a short 'warning' message that self-deletes
-        if (channelWarning != null && message.getGuild().getSelfMember().hasPermission(message.getChannel().asTextChannel(), Permission.MESSAGE_SEND)) {
-            message.getChannel().sendMessage(message.getAuthor().getAsMention() + Constants.WARNING + " " + channelWarning).queue(m -> m.delete().queueAfter(2500, TimeUnit.MILLISECONDS, s -> {}, f -> {}), f -> {});
+    private static class UserMentionCheck extends AutomodCheck {
+        private UserMentionCheck() {
+            super("User Mentions", Cost.CHEAP);
         }
 
-        // now, lets resolve links, but async
-        if (!shouldDelete && settings.resolveUrls && (preventInvites || settings.filterRefs)) {
-            List<String> links = new LinkedList<>();
-            Matcher m = LINK.matcher(message.getContentRaw());
-            while (m.find()) {
-                links.add(m.group().endsWith(">") ? m.group().substring(0, m.group().length() - 1) : m.group());
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.getSettings().maxMentions >= AutomodManager.MENTION_MINIMUM;
+        }
+
+        @Override
+        public boolean check(AutomodContext context) {
+            int mentions = context.getFeatures().getUserMentions();
+            if (mentions > context.getSettings().maxMentions) {
+                context.flag("Mentioning " + mentions + " users");
+                return true;
             }
 
-            if (!links.isEmpty()) {
-                vortex.getThreadpool().execute(() -> {
-                    boolean containsInvite = false;
-                    boolean containsRef = false;
-                    String llink = null;
-                    List<String> redirects = null;
-                    for (String link : links) {
-                        llink = link;
-                        redirects = urlResolver.findRedirects(link);
-                        for (String resolved : redirects) {
-                            if (preventInvites && resolved.matches(INVITE_LINK)) {
-                                String code = resolved.replaceAll(INVITE_LINK, "$1");
-                                LOG.info("Delayed resolving invite in " + message.getGuild().getId() + ": " + code);
-                                long invite = inviteResolver.resolve(code, message.getJDA());
-                                if (invite != message.getGuild().getIdLong() && !inviteWhitelist.contains(invite)) {
-                                    containsInvite = true;
-                                }
-                            }
+            return false;
+        }
+    }
 
-                            if (settings.filterRefs) {
-                                if (resolved.matches(REF.pattern()) || isReferralUrl(resolved.replaceAll(BASE_URL.pattern(), "$1"))) {
-                                    containsRef = true;
-                                }
-                            }
-                        }
+    private static class MaxLinesCheck extends AutomodCheck {
+        private MaxLinesCheck() {
+            super("Max Lines", Cost.CHEAP);
+        }
 
-                        if ((containsInvite || !preventInvites) && (containsRef || settings.filterRefs)) {
-                            break;
-                        }
-                    }
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.getSettings().maxLines > 0 && context.preventSpam();
+        }
 
-                    if (containsInvite || containsRef) {
-                        vortex.getBasicLogger().logRedirectPath(message, llink, redirects);
-                        String rreason = ((containsInvite ? ", Advertising (Resolved Link)" : "") + (containsRef ? ", Referral Link (Resolved Link)" : "")).substring(2);
-                        try {
-                            message.delete().reason(rreason).queue(v -> {}, f -> {});
-                        } catch (PermissionException ignore) {
-                        }
-                    }
-                });
+        @Override
+        public boolean check(AutomodContext context) {
+            int count = context.getFeatures().getLineCount();
+            if (count > context.getSettings().maxLines) {
+                context.flag("Message contained " + count + " newlines");
+                return true;
             }
+
+            return false;
         }
     }
 
-    private void purgeMessages(Guild guild, Predicate<CachedMessage> predicate) {
-        vortex.getMessageCache().getMessages(guild, predicate).stream().collect(Collectors.groupingBy(CachedMessage::getTextChannelId)).entrySet().forEach(entry -> {
-            try {
-                TextChannel mtc = guild.getTextChannelById(entry.getKey());
-                if (mtc != null) {
-                    mtc.purgeMessagesById(entry.getValue().stream().map(CachedMessage::getId).collect(Collectors.toList()));
-                }
-            } catch (PermissionException ignore) {
-            } catch (Exception ex) {
-                LOG.error("Error in purging messages: ", ex);
+    private static class RoleMentionCheck extends AutomodCheck {
+        private RoleMentionCheck() {
+            super("Role Mentions", Cost.CHEAP);
+        }
+
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.getSettings().maxRoleMentions >= AutomodManager.ROLE_MENTION_MINIMUM;
+        }
+
+        @Override
+        public boolean check(AutomodContext context) {
+            int mentions = context.getFeatures().getRoleMentions();
+            if (mentions > context.getSettings().maxRoleMentions) {
+                context.flag("Mentioning " + mentions + " roles");
+                return true;
             }
-        });
+
+            return false;
+        }
     }
 
-    private boolean isReferralUrl(String url) {
-        // TODO: Make it search against a presorted refferal list?
-        for (String reflink : refLinkList) {
-            if (reflink.equalsIgnoreCase(url)) {
+    private class FilterCheck extends AutomodCheck {
+        private FilterCheck() {
+            super("Filters", Cost.MODERATE);
+        }
+
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return true;
+        }
+
+        @Override
+        public boolean check(AutomodContext context) {
+            String content = context.getMessage().getContentRaw();
+            Filters filters = data.getFilters(context.getGuildId());
+            if (filters.veryBadWords() != null && filters.veryBadWords().test(content)) {
+                context.flag("Very Bad Words Filter");
                 return true;
             }
-        }
 
-        return false;
+            if (filters.badWords() != null && filters.badWords().test(content)) {
+                context.flag("Bad Words Filter");
+                return true;
+            }
+
+            return false;
+        }
     }
 
-    private final static List<String> ZEROWIDTH = Arrays.asList("\u00AD", "\u034F", "\u17B4", "\u17B5", "\u180B", "\u180C", "\u180D", "\u180E", "\u200B", "\u200C", "\u200D", "\u200E", "\u202A", "\u202C", "\u202D", "\u2060", "\u2061", "\u2062", "\u2063", "\u2064", "\u2065", "\u2066", "\u2067", "\u2068", "\u2069", "\u206A", "\u206B", "\u206C", "\u206D", "\u206E", "\u206F", "\uFE00", "\uFE01", "\uFE02", "\uFE03", "\uFE04", "\uFE05", "\uFE06", "\uFE07", "\uFE08", "\uFE09", "\uFE0A", "\uFE0B", "\uFE0C", "\uFE0D", "\uFE0E", "\uFE0F", "\uFEFF", "\uFFF0", "\uFFF1", "\uFFF2", "\uFFF3", "\uFFF4", "\uFFF5", "\uFFF6", "\uFFF7", "\uFFF8");
+    private class ReferralCheck extends AutomodCheck {
+        private ReferralCheck() {
+            super("Referrals", Cost.MODERATE);
+        }
 
-    private static String condensedContent(Message m) {
-        StringBuilder sb = new StringBuilder(m.getContentRaw());
-        m.getAttachments().forEach(at -> sb.append("\n").append(at.getFileName()));
-        try {
-            StringBuilder sb2 = new StringBuilder();
-            sb.toString().chars().filter(c -> !ZEROWIDTH.contains(Character.toString((char) c))).forEach(c -> sb2.append((char) c));
-            return sb2.toString().trim().replaceAll(CONDENSER, "$1");
-        } catch (Exception ex) {
-            return sb.toString().trim();
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.getSettings().filterRefs;
+        }
+
+        @Override
+        public boolean check(AutomodContext context) {
+            MessageFeatures features = context.getFeatures();
+            if (features.hasReferralLink()) {
+                context.flag("Referral link");
+                return true;
+            }
+
+            for (String host : features.getHosts()) {
+                if (referralDomains.matches(host)) {
+                    context.flag("Referral link");
+                    return true;
+                }
+            }
+
+            return false;
         }
     }
 
-    private static OffsetDateTime latestTime(Message m) {
-        return m.isEdited() ? m.getTimeEdited() : m.getTimeCreated();
+    private class CopypastaCheck extends AutomodCheck {
+        private CopypastaCheck() {
+            super("Copypastas", Cost.MODERATE);
+        }
+
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.getSettings().filterCopypastas && context.preventSpam();
+        }
+
+        @Override
+        public boolean check(AutomodContext context) {
+            String copypastaName = copypastaResolver.getCopypasta(context.getMessage().getContentRaw());
+            if (copypastaName != null) {
+                context.flag(copypastaName + " copypasta");
+                return true;
+            }
+
+            return false;
+        }
     }
 
-    private static class DupeStatus {
-        private String content;
-        private OffsetDateTime time;
-        private int count;
+    private class InviteCheck extends AutomodCheck {
+        private InviteCheck() {
+            super("Invites", Cost.EXPENSIVE);
+        }
 
-        private DupeStatus(String content, OffsetDateTime time) {
-            this.content = content;
-            this.time = time;
-            count = 0;
+        @Override
+        public boolean shouldRun(AutomodContext context) {
+            return context.preventInvites();
         }
 
-        private int update(String nextcontent, OffsetDateTime nexttime) {
-            if (nextcontent.equals(content) && this.time.plusSeconds(30).isAfter(nexttime)) {
-                count++;
-                this.time = nexttime;
-            } else {
-                this.content = nextcontent;
-                this.time = nexttime;
-                count = 0;
+        @Override
+        public boolean check(AutomodContext context) {
+            Message message = context.getMessage();
+            List<String> invites = context.getFeatures().getInviteCodes();
+
+            LOG.trace("Found " + invites.size() + " invites.");
+            if (invites.isEmpty()) {
+                return false;
+            }
+
+            long guildId = message.getGuild().getIdLong();
+            LongSet inviteWhitelist = context.getInviteWhitelist();
+            List<CompletableFuture<Long>> resolving = new ArrayList<>(invites.size());
+            for (String inviteCode : invites) {
+                LOG.info("Resolving invite in " + message.getGuild().getId() + ": " + inviteCode);
+                resolving.add(inviteResolver.resolve(inviteCode, message.getJDA()));
             }
 
-            return count;
+            // Lookups dropped under load aren't known to lead anywhere else, so they aren't counted
+            Predicate<Long> advertising = gid -> gid != InviteResolver.UNRESOLVED && gid != guildId && !inviteWhitelist.contains(gid);
+            if (resolving.stream().allMatch(CompletableFuture::isDone)) {
+                if (resolving.stream().map(CompletableFuture::join).anyMatch(advertising)) {
+                    context.flag("Advertising");
+                    return true;
+                }
+
+                return false;
+            }
+
+            context.defer(CompletableFuture.allOf(resolving.toArray(CompletableFuture[]::new))
+                    .thenApply(v -> resolving.stream().map(CompletableFuture::join).anyMatch(advertising) ? "Advertising" : null));
+            return false;
         }
     }
+
+    private void purgeMessages(Guild guild, long authorId, OffsetDateTime since) {
+        vortex.getMessageCache().getMessageIdsByAuthor(guild, authorId, since).forEach((channelId, ids) -> {
+            TextChannel mtc = guild.getTextChannelById(channelId);
+            if (mtc != null) {
+                ids.forEach(id -> deletions.delete(mtc, id, null));
+            }
+        });
+    }
+
+    private static String condensedContent(MessageFeatures features) {
+        StringBuilder sb = new StringBuilder(features.getContent());
+        features.getAttachments().forEach(name -> sb.append("\n").append(name));
+        return ContentCondenser.condense(sb);
+    }
+
+    private static OffsetDateTime latestTime(Message m) {
+        return m.isEdited() ? m.getTimeEdited() : m.getTimeCreated();
+    }
+
+    private record ResolvedLink(String link, List<String> redirects, boolean invite, boolean ref) {}
 }
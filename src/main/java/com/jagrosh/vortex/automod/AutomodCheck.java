@@ -0,0 +1,105 @@
+package com.jagrosh.vortex.automod;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A single automod check that is run on a message as part of an {@link AutomodPipeline}. Checks declare how expensive
+ * they are so that the pipeline can run the cheap ones first, and can stop before the expensive ones once a message is
+ * already going to be deleted. Every check keeps track of how often it runs, how often it hits and how long it takes.
+ */
+public abstract class AutomodCheck {
+    private final @Getter String name;
+    private final @Getter Cost cost;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder skips = new LongAdder();
+    private final LongAdder shortCircuits = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    protected AutomodCheck(String name, Cost cost) {
+        this.name = name;
+        this.cost = cost;
+    }
+
+    /**
+     * Checks if this check applies to a message at all, based on the settings of the guild and channel. This should be
+     * cheap, since it runs for every message.
+     * @param context The context of the message being checked
+     * @return True if the check should run
+     */
+    public abstract boolean shouldRun(AutomodContext context);
+
+    /**
+     * Runs the check, flagging the message in the context if needed
+     * @param context The context of the message being checked
+     * @return True if the check was hit
+     */
+    public abstract boolean check(AutomodContext context);
+
+    /**
+     * Checks that keep track of state between messages need to see every message, even once it is already known that
+     * a message will be deleted. These checks are run before all others.
+     * @return True if this check should never be short-circuited
+     */
+    public boolean isStateful() {
+        return false;
+    }
+
+    void recordRun(long nanos, boolean hit) {
+        runs.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        if (hit) {
+            hits.increment();
+        }
+    }
+
+    void recordSkip() {
+        skips.increment();
+    }
+
+    void recordShortCircuit() {
+        shortCircuits.increment();
+    }
+
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getSkips() {
+        return skips.sum();
+    }
+
+    public long getShortCircuits() {
+        return shortCircuits.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * How expensive a check is to run. Checks are run in the order of this enum.
+     */
+    public enum Cost {
+        /** Only looks at data already present on the message */
+        CHEAP,
+        /** Scans the content of the message */
+        MODERATE,
+        /** May read from the database or make requests */
+        EXPENSIVE
+    }
+}
@@ -0,0 +1,137 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
+import com.jagrosh.vortex.utils.LongSet;
+import lombok.Getter;
+import net.dv8tion.jda.api.entities.Message;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Everything the checks of an {@link AutomodPipeline} know about the message being checked, along with the verdict
+ * they have reached so far. Anything that costs something to work out, such as the channel topic switches or the invite
+ * whitelist, is only worked out when a check first asks for it.
+ */
+public class AutomodContext {
+    private final @Getter Message message;
+    private final @Getter AutomodSettings settings;
+    private final AutomodData data;
+
+    private boolean shouldDelete = false;
+    private final StringBuilder reason = new StringBuilder();
+    private @Getter String channelWarning = null;
+    private @Getter OffsetDateTime purgeSince = null;
+    private final @Getter List<CompletableFuture<String>> deferred = new ArrayList<>();
+
+    private final ChannelFlags channelFlags;
+    private int flags = -1;
+    private LongSet inviteWhitelist = null;
+    private MessageFeatures features = null;
+
+    public AutomodContext(Message message, AutomodSettings settings, AutomodData data, ChannelFlags channelFlags) {
+        this(message, settings, data, channelFlags, null);
+    }
+
+    /**
+     * Creates a context for a message whose features have already been worked out, such as one that is being replayed
+     */
+    public AutomodContext(Message message, AutomodSettings settings, AutomodData data, ChannelFlags channelFlags, MessageFeatures features) {
+        this.message = message;
+        this.settings = settings;
+        this.data = data;
+        this.channelFlags = channelFlags;
+        this.features = features;
+    }
+
+    /**
+     * Marks the message for deletion
+     * @param reason Why the message is being deleted
+     */
+    public void flag(String reason) {
+        this.shouldDelete = true;
+        this.reason.append(", ").append(reason);
+    }
+
+    /**
+     * Adds a verdict that can't be reached right away, such as one that depends on a request
+     * @param verdict A future that completes with why the message should be deleted, or null if it shouldn't be
+     */
+    public void defer(CompletableFuture<String> verdict) {
+        deferred.add(verdict);
+    }
+
+    public void setChannelWarning(String channelWarning) {
+        this.channelWarning = channelWarning;
+    }
+
+    /**
+     * Marks the recent messages of the author for deletion
+     * @param purgeSince Messages sent in the two minutes before this time will be deleted
+     */
+    public void setPurgeSince(OffsetDateTime purgeSince) {
+        this.purgeSince = purgeSince;
+    }
+
+    public boolean shouldDelete() {
+        return shouldDelete;
+    }
+
+    public String getReason() {
+        return reason.isEmpty() ? null : reason.substring(2);
+    }
+
+    public long getGuildId() {
+        return message.getGuild().getIdLong();
+    }
+
+    /**
+     * @return False if the channel topic contains {@code {spam}}
+     */
+    public boolean preventSpam() {
+        return !hasChannelFlag(ChannelFlags.Flag.SPAM);
+    }
+
+    /**
+     * @return True if the guild filters invites and the channel topic doesn't contain {@code {invites}}
+     */
+    public boolean preventInvites() {
+        return !hasChannelFlag(ChannelFlags.Flag.INVITES) && settings.filterInvites;
+    }
+
+    /**
+     * @param flag The switch
+     * @return True if the topic of the channel turns the switch on
+     */
+    public synchronized boolean hasChannelFlag(ChannelFlags.Flag flag) {
+        if (flags == -1) {
+            flags = channelFlags.get(message.getChannel().asTextChannel());
+        }
+
+        return flag.isSet(flags);
+    }
+
+    /**
+     * @return The guilds whose invites are allowed, which is only read if invites are being prevented
+     */
+    public synchronized LongSet getInviteWhitelist() {
+        if (inviteWhitelist == null) {
+            inviteWhitelist = preventInvites() ? data.getInviteWhitelist(message.getGuild()) : LongSet.EMPTY;
+        }
+
+        return inviteWhitelist;
+    }
+
+    /**
+     * @return The features of the message, which are worked out the first time they are needed
+     */
+    public synchronized MessageFeatures getFeatures() {
+        if (features == null) {
+            features = MessageFeatures.of(message);
+        }
+
+        return features;
+    }
+}
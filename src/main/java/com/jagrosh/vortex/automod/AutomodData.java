@@ -0,0 +1,45 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.database.Database;
+import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
+import com.jagrosh.vortex.database.managers.FilterManager.Filters;
+import com.jagrosh.vortex.utils.LongSet;
+import net.dv8tion.jda.api.entities.Guild;
+
+/**
+ * The settings of a guild that automod reads while it evaluates a message. The bot reads them from the database, and a
+ * {@link AutomodReplay replay} from a settings file.
+ */
+public interface AutomodData {
+    AutomodSettings getSettings(Guild guild);
+
+    Filters getFilters(long guildId);
+
+    /**
+     * @return The IDs of the guilds whose invites are allowed in the guild
+     */
+    LongSet getInviteWhitelist(Guild guild);
+
+    /**
+     * @param database The database
+     * @return The settings as they are stored in the database
+     */
+    static AutomodData of(Database database) {
+        return new AutomodData() {
+            @Override
+            public AutomodSettings getSettings(Guild guild) {
+                return database.automod.getSettings(guild);
+            }
+
+            @Override
+            public Filters getFilters(long guildId) {
+                return database.filters.getFilters(guildId);
+            }
+
+            @Override
+            public LongSet getInviteWhitelist(Guild guild) {
+                return database.inviteWhitelist.readWhitelist(guild);
+            }
+        };
+    }
+}
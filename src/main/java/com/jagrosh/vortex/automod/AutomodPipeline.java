@@ -0,0 +1,84 @@
+package com.jagrosh.vortex.automod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs a set of {@link AutomodCheck}s on a message. Stateful checks always run first, and the rest run from cheapest to
+ * most expensive. Once a message has been flagged for deletion, the remaining checks are skipped since they can't
+ * change the verdict.
+ */
+public class AutomodPipeline {
+    private final List<AutomodCheck> checks;
+    private volatile Observer observer = null;
+
+    public AutomodPipeline(List<AutomodCheck> checks) {
+        List<AutomodCheck> sorted = new ArrayList<>(checks);
+        sorted.sort(Comparator.comparing((AutomodCheck check) -> !check.isStateful()).thenComparing(AutomodCheck::getCost));
+        this.checks = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Runs every applicable check on the message of the context, stopping early once the message will be deleted
+     * @param context The context of the message to check
+     */
+    public void evaluate(AutomodContext context) {
+        for (AutomodCheck check : checks) {
+            if (context.shouldDelete() && !check.isStateful()) {
+                check.recordShortCircuit();
+                continue;
+            }
+
+            if (!check.shouldRun(context)) {
+                check.recordSkip();
+                continue;
+            }
+
+            long start = System.nanoTime();
+            boolean hit = check.check(context);
+            long nanos = System.nanoTime() - start;
+            check.recordRun(nanos, hit);
+            Observer observer = this.observer;
+            if (observer != null) {
+                observer.onRun(check, nanos, hit);
+            }
+        }
+    }
+
+    /**
+     * Sets something to be told about every check that runs, on top of the totals every check keeps
+     * @param observer The observer, or null to remove it
+     */
+    public void setObserver(Observer observer) {
+        this.observer = observer;
+    }
+
+    public List<AutomodCheck> getChecks() {
+        return checks;
+    }
+
+    /**
+     * @return A table of how often every check ran and hit, and how long it took
+     */
+    public String printStats() {
+        StringBuilder sb = new StringBuilder("```\nCheck            Runs     Hits     Skips    Avg(us)  Max(us)");
+        for (AutomodCheck check : checks) {
+            long runs = check.getRuns();
+            sb.append(String.format("%n%-16s %-8d %-8d %-8d %-8d %-8d", check.getName(), runs, check.getHits(), check.getSkips() + check.getShortCircuits(), runs == 0 ? 0 : check.getTotalNanos() / runs / 1000, check.getMaxNanos() / 1000));
+        }
+
+        return sb.append("\n```").toString();
+    }
+
+    public interface Observer {
+        /**
+         * Called after a check ran, on the thread that ran it
+         * @param check The check
+         * @param nanos How long the check took in nanoseconds
+         * @param hit True if the check hit
+         */
+        void onRun(AutomodCheck check, long nanos, boolean hit);
+    }
+}
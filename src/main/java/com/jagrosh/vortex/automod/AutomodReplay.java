@@ -0,0 +1,321 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.database.managers.AutomodManager.AutomodSettings;
+import com.jagrosh.vortex.database.managers.FilterManager.Filters;
+import com.jagrosh.vortex.utils.LongSet;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigUtil;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.ISnowflake;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Replays a corpus of recorded messages through the automod checks without connecting to Discord, and reports what
+ * automod decided, how many messages it got through per second, and how long every check took. Guild settings, filters
+ * and invite whitelists are read from a settings file rather than the database, such as
+ * <pre>{@code guilds { "1" { max-lines = 5, filter-invites = false, bad-words = "\"free nitro\"", invite-whitelist = ["2"] } }}</pre>
+ * with the keys of {@link AutomodSettings#AutomodSettings(Config)}, and guilds that aren't in it have no settings.
+ * <p>
+ * The corpus has one JSON object per line, such as
+ * <pre>{@code {"guild": "1", "channel": "2", "author": "3", "content": "hi", "attachments": ["a.png"], "mentions": {"users": ["4"], "roles": []}}}</pre>
+ * Every message can also have an {@code id}, a {@code time} in epoch milliseconds, a channel {@code topic}, and whether
+ * the author is a {@code bot}. Messages are only evaluated: nothing is deleted, links aren't resolved, and invites
+ * can't be looked up, so every invite that isn't cached counts as an invalid one. Members aren't known either, so
+ * nobody is exempt from automod.
+ * <p>
+ * Usage: {@code java -cp Vortex.jar com.jagrosh.vortex.automod.AutomodReplay <settings> <corpus>}, and the tests have
+ * a small sample of both in {@code replay/}.
+ */
+public class AutomodReplay {
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final AutoMod autoMod;
+    private final AutomodData data;
+    private final JDA jda = stub(JDA.class, Map.of());
+    private final Map<Long, Guild> guilds = new HashMap<>();
+    private final Map<Long, User> users = new HashMap<>();
+    private final Map<Long, MessageChannelUnion> channels = new HashMap<>();
+    private final Map<AutomodCheck, Samples> samples = new LinkedHashMap<>();
+
+    public AutomodReplay(Config config, AutomodData data) {
+        this.data = data;
+        this.autoMod = new AutoMod(null, data, null, config, null);
+        for (AutomodCheck check : autoMod.getPipeline().getChecks()) {
+            samples.put(check, new Samples());
+        }
+
+        autoMod.getPipeline().setObserver((check, nanos, hit) -> samples.get(check).add(nanos));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: AutomodReplay <settings> <corpus>");
+            System.exit(1);
+        }
+
+        Config settings = ConfigFactory.parseFile(new File(args[0]), ConfigParseOptions.defaults().setAllowMissing(false));
+        AutomodReplay replay = new AutomodReplay(ConfigFactory.load(), new SettingsFile(settings));
+        List<AutomodContext> corpus = replay.load(Path.of(args[1]));
+        System.out.println(replay.replay(corpus));
+    }
+
+    /**
+     * Reads a corpus into contexts that are ready to be evaluated
+     * @param path The corpus, with one message per line
+     * @return The contexts, in the order of the corpus
+     * @throws IOException If the corpus couldn't be read
+     */
+    public List<AutomodContext> load(Path path) throws IOException {
+        List<AutomodContext> corpus = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    corpus.add(parse(DataObject.fromJson(line), corpus.size()));
+                }
+            }
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Evaluates every message of a corpus in order
+     * @param corpus The contexts of the messages
+     * @return A report of the verdicts, throughput, and check latencies
+     */
+    public String replay(List<AutomodContext> corpus) {
+        long start = System.nanoTime();
+        for (AutomodContext context : corpus) {
+            autoMod.evaluate(context);
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        int deleted = 0, purges = 0;
+        Map<String, Integer> reasons = new TreeMap<>();
+        for (AutomodContext context : corpus) {
+            String reason = context.getReason();
+            if (reason == null && !context.getDeferred().isEmpty()) {
+                reason = CompletableFuture.allOf(context.getDeferred().toArray(CompletableFuture[]::new))
+                        .thenApply(v -> context.getDeferred().stream().map(CompletableFuture::join).filter(Objects::nonNull).findFirst().orElse(null))
+                        .join();
+            }
+
+            if (reason != null) {
+                deleted++;
+                reasons.merge(reason, 1, Integer::sum);
+            }
+
+            if (context.getPurgeSince() != null) {
+                purges++;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Messages: %d, Deleted: %d, Purges: %d%n", corpus.size(), deleted, purges));
+        sb.append(String.format("Elapsed: %.1fms, Throughput: %.0f messages/s%n", elapsed / 1e6, elapsed == 0 ? 0 : corpus.size() * 1e9 / elapsed));
+        reasons.forEach((reason, count) -> sb.append(String.format("  %-40s %d%n", reason, count)));
+        sb.append(String.format("%n%-16s %-8s %-8s %-9s %-9s %-9s %-9s", "Check", "Runs", "Hits", "p50(us)", "p90(us)", "p99(us)", "Max(us)"));
+        samples.forEach((check, runs) -> {
+            sb.append(String.format("%n%-16s %-8d %-8d", check.getName(), runs.size, check.getHits()));
+            for (double percentile : PERCENTILES) {
+                sb.append(String.format(" %-9.1f", runs.percentile(percentile) / 1e3));
+            }
+
+            sb.append(String.format(" %-9.1f", runs.percentile(1) / 1e3));
+        });
+
+        return sb.toString();
+    }
+
+    private AutomodContext parse(DataObject json, int index) {
+        long time = json.getLong("time", 0);
+        long id = json.getLong("id", 0);
+        if (id == 0) {
+            id = TimeUtil.getDiscordTimestamp(time) + index;
+        } else if (time == 0) {
+            time = TimeUtil.getTimeCreated(id).toInstant().toEpochMilli();
+        }
+
+        Guild guild = guilds.computeIfAbsent(json.getLong("guild"), guildId -> stub(Guild.class, Map.of("getIdLong", guildId, "getJDA", jda)));
+        User author = user(json.getLong("author"), json.getBoolean("bot", false));
+        MessageChannelUnion channel = channels.computeIfAbsent(json.getLong("channel"), channelId -> {
+            Map<String, Object> answers = new HashMap<>();
+            answers.put("getIdLong", channelId);
+            answers.put("getTopic", json.getString("topic", null));
+            answers.put("getGuild", guild);
+            answers.put("asTextChannel", stub(TextChannel.class, answers));
+            return stub(MessageChannelUnion.class, answers);
+        });
+
+        List<String> attachments = new ArrayList<>();
+        json.optArray("attachments").ifPresent(array -> {
+            for (int i = 0; i < array.length(); i++) {
+                attachments.add(array.getString(i));
+            }
+        });
+
+        DataObject mentions = json.optObject("mentions").orElseGet(DataObject::empty);
+        Set<Long> mentionedUsers = new HashSet<>();
+        DataArray userMentions = mentions.optArray("users").orElseGet(DataArray::empty);
+        for (int i = 0; i < userMentions.length(); i++) {
+            mentionedUsers.add(userMentions.getLong(i));
+        }
+
+        mentionedUsers.remove(author.getIdLong());
+        Set<Long> mentionedRoles = new HashSet<>();
+        DataArray roleMentions = mentions.optArray("roles").orElseGet(DataArray::empty);
+        for (int i = 0; i < roleMentions.length(); i++) {
+            mentionedRoles.add(roleMentions.getLong(i));
+        }
+
+        String content = json.getString("content", "");
+        Map<String, Object> message = new HashMap<>();
+        message.put("getIdLong", id);
+        message.put("getContentRaw", content);
+        message.put("getAuthor", author);
+        message.put("getGuild", guild);
+        message.put("getChannel", channel);
+        message.put("getJDA", jda);
+        message.put("getTimeCreated", OffsetDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC));
+        message.put("isEdited", false);
+        message.put("getTimeEdited", null);
+
+        MessageFeatures features = new MessageFeatures(content, attachments, mentionedUsers.size(), mentionedRoles.size());
+        AutomodSettings settings = data.getSettings(guild);
+        return new AutomodContext(stub(Message.class, message), settings, data, autoMod.getChannelFlags(), features);
+    }
+
+    private User user(long userId, boolean bot) {
+        return users.computeIfAbsent(userId, id -> stub(User.class, Map.of("getIdLong", id, "isBot", bot)));
+    }
+
+    /**
+     * Creates a stand-in for a JDA entity that only knows the answers to a few methods
+     * @param type The interface of the entity
+     * @param answers What each method returns, by name
+     * @return The stand-in, which throws {@link UnsupportedOperationException} for any other method
+     */
+    private static <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (answers.containsKey(name) && method.getParameterCount() == 0) {
+                return answers.get(name);
+            }
+
+            Object id = answers.get("getIdLong");
+            return switch (name) {
+                case "getId" -> {
+                    if (id == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + " has no ID in a replay");
+                    }
+
+                    yield Long.toUnsignedString((Long) id);
+                }
+                case "equals" -> proxy == args[0] || (id != null && type.isInstance(args[0]) && args[0] instanceof ISnowflake other && other.getIdLong() == (Long) id);
+                case "hashCode" -> id == null ? System.identityHashCode(proxy) : Long.hashCode((Long) id);
+                case "toString" -> type.getSimpleName() + (id == null ? "" : ":" + id);
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + name + " is not available in a replay");
+            };
+        }));
+    }
+
+    /**
+     * The settings of the guilds in a settings file
+     */
+    static class SettingsFile implements AutomodData {
+        private static final AutomodSettings DEFAULT_SETTINGS = new AutomodSettings(ConfigFactory.empty());
+
+        private final Map<Long, AutomodSettings> settings = new HashMap<>();
+        private final Map<Long, Filters> filters = new HashMap<>();
+        private final Map<Long, LongSet> inviteWhitelists = new HashMap<>();
+
+        /**
+         * @param config The settings file, with the settings of every guild under {@code guilds}
+         * @throws IllegalArgumentException If a filter can't be parsed
+         */
+        SettingsFile(Config config) {
+            Config guilds = config.hasPath("guilds") ? config.getConfig("guilds") : ConfigFactory.empty();
+            for (String key : guilds.root().keySet()) {
+                long guildId = Long.parseLong(key);
+                Config guild = guilds.getConfig(ConfigUtil.joinPath(key));
+                settings.put(guildId, new AutomodSettings(guild));
+                filters.put(guildId, new Filters(filter(guild, "bad-words"), filter(guild, "very-bad-words")));
+                if (guild.hasPath("invite-whitelist")) {
+                    inviteWhitelists.put(guildId, LongSet.of(guild.getStringList("invite-whitelist").stream().map(Long::parseLong).toList()));
+                }
+            }
+        }
+
+        @Override
+        public AutomodSettings getSettings(Guild guild) {
+            return settings.getOrDefault(guild.getIdLong(), DEFAULT_SETTINGS);
+        }
+
+        @Override
+        public Filters getFilters(long guildId) {
+            return filters.getOrDefault(guildId, Filters.NONE);
+        }
+
+        @Override
+        public LongSet getInviteWhitelist(Guild guild) {
+            return inviteWhitelists.getOrDefault(guild.getIdLong(), LongSet.EMPTY);
+        }
+
+        private static Filter filter(Config guild, String key) {
+            return guild.hasPath(key) ? Filter.parseFilter(guild.getString(key)) : null;
+        }
+    }
+
+    private static class Samples {
+        private long[] nanos = new long[1024];
+        private int size = 0;
+        private boolean sorted = true;
+
+        private void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+
+            nanos[size++] = value;
+            sorted = false;
+        }
+
+        private long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+
+            if (!sorted) {
+                Arrays.sort(nanos, 0, size);
+                sorted = true;
+            }
+
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return nanos[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
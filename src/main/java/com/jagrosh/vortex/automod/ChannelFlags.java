@@ -0,0 +1,138 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongLongMap;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+/**
+ * Caches which automod switches the topic of every channel turns on, as a bitmask per channel ID. A channel's topic is
+ * only looked at the first time the channel is asked about and whenever its topic changes, so checking a switch for a
+ * message is a lookup in a primitive hash table rather than lowercasing and searching the topic. The guild of every
+ * channel is kept next to its flags, so a guild's channels can be forgotten when the bot leaves it.
+ */
+public class ChannelFlags {
+    private static final long MISSING = -1;
+
+    private final LongLongMap channels = new LongLongMap(1024);
+    private final LongLongMap guilds = new LongLongMap(1024);
+
+    /**
+     * Gets the switches a channel's topic turns on, reading the topic if the channel hasn't been seen before
+     * @param channel The channel
+     * @return The flags of the switches, see {@link Flag#bit()}
+     */
+    public int get(TextChannel channel) {
+        long cached = lookup(channel.getIdLong());
+        if (cached != MISSING) {
+            return (int) cached;
+        }
+
+        // A topic update that came in while this one was being read wins
+        return store(channel.getGuild().getIdLong(), channel.getIdLong(), parse(channel.getTopic()), false);
+    }
+
+    /**
+     * Updates the switches of a channel after its topic changed
+     * @param guildId The ID of the guild the channel is in
+     * @param channelId The ID of the channel
+     * @param topic The new topic, or null if the topic was removed
+     */
+    public void update(long guildId, long channelId, String topic) {
+        store(guildId, channelId, parse(topic), true);
+    }
+
+    /**
+     * Forgets a channel, such as after it was deleted
+     * @param channelId The ID of the channel
+     */
+    public synchronized void remove(long channelId) {
+        channels.remove(channelId, MISSING);
+        guilds.remove(channelId, MISSING);
+    }
+
+    /**
+     * Forgets every channel of a guild, such as when the bot leaves it
+     * @param guildId The ID of the guild
+     */
+    public synchronized void removeGuild(long guildId) {
+        if (guilds.removeIf((channelId, channelGuild) -> channelGuild == guildId) != 0) {
+            channels.removeIf((channelId, flags) -> !guilds.containsKey(channelId));
+        }
+    }
+
+    /**
+     * @return The amount of channels whose switches are cached
+     */
+    synchronized int size() {
+        return channels.size();
+    }
+
+    /**
+     * Works out the switches a topic turns on, without copying the topic
+     * @param topic The topic, or null if there is none
+     * @return The flags of the switches
+     */
+    public static int parse(String topic) {
+        if (topic == null) {
+            return 0;
+        }
+
+        int flags = 0;
+        for (int i = topic.indexOf('{'); i != -1; i = topic.indexOf('{', i + 1)) {
+            for (Flag flag : Flag.VALUES) {
+                if (topic.regionMatches(true, i, flag.token, 0, flag.token.length())) {
+                    flags |= flag.bit();
+                }
+            }
+        }
+
+        return flags;
+    }
+
+    private synchronized long lookup(long channelId) {
+        return channels.get(channelId, MISSING);
+    }
+
+    private synchronized int store(long guildId, long channelId, int value, boolean replace) {
+        if (!replace) {
+            long existing = channels.get(channelId, MISSING);
+            if (existing != MISSING) {
+                return (int) existing;
+            }
+        }
+
+        channels.put(channelId, value, MISSING);
+        guilds.put(channelId, guildId, MISSING);
+        return value;
+    }
+
+    /**
+     * A switch that can be turned on for a channel by putting its token in the channel topic. New switches only need a
+     * new constant here.
+     */
+    public enum Flag {
+        /** Allows spam, turning off the anti-duplicate, max lines and copypasta checks */
+        SPAM("{spam}"),
+        /** Allows invites */
+        INVITES("{invites}");
+
+        private static final Flag[] VALUES = values();
+
+        private final String token;
+
+        Flag(String token) {
+            this.token = token;
+        }
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        /**
+         * @param flags The flags of a channel
+         * @return True if this switch is on in the flags
+         */
+        public boolean isSet(int flags) {
+            return (flags & bit()) != 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.jagrosh.vortex.automod;
+
+/**
+ * Condenses the content of a message for the anti-duplicate check, so that messages that only differ by zero-width
+ * characters or by how many times something is repeated are seen as the same. This produces exactly what stripping the
+ * zero-width characters, trimming, and then calling {@code replaceAll("(.+?)\\s*(\\1\\s*)+", "$1")} would, but without
+ * the backtracking regex and its recursion.
+ */
+public class ContentCondenser {
+    private static final long NO_REPEAT = -1;
+    private static final long[] ZERO_WIDTH = new long[(Character.MAX_VALUE + 1) / Long.SIZE];
+
+    static {
+        for (int c : new int[]{0x00AD, 0x034F, 0x17B4, 0x17B5, 0x202A, 0x202C, 0x202D, 0xFEFF}) {
+            markZeroWidth(c, c);
+        }
+
+        markZeroWidth(0x180B, 0x180E);
+        markZeroWidth(0x200B, 0x200E);
+        markZeroWidth(0x2060, 0x206F);
+        markZeroWidth(0xFE00, 0xFE0F);
+        markZeroWidth(0xFFF0, 0xFFF8);
+    }
+
+    private ContentCondenser() {}
+
+    /**
+     * Strips zero-width characters, trims, and collapses repeated text
+     * @param content The content to condense
+     * @return The condensed content
+     */
+    public static String condense(CharSequence content) {
+        return collapseRepeats(stripZeroWidth(content).trim());
+    }
+
+    /**
+     * @param c The character
+     * @return True if the character is one of the zero-width characters that are ignored
+     */
+    public static boolean isZeroWidth(char c) {
+        return (ZERO_WIDTH[c >>> 6] & (1L << c)) != 0;
+    }
+
+    /**
+     * Removes every zero-width character
+     * @param content The content
+     * @return The content without zero-width characters
+     */
+    public static String stripZeroWidth(CharSequence content) {
+        int length = content.length();
+        char[] stripped = null;
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (!isZeroWidth(c)) {
+                if (stripped != null) {
+                    stripped[size++] = c;
+                }
+            } else if (stripped == null) {
+                stripped = new char[length - 1];
+                for (size = 0; size < i; size++) {
+                    stripped[size] = content.charAt(size);
+                }
+            }
+        }
+
+        return stripped == null ? content.toString() : new String(stripped, 0, size);
+    }
+
+    /**
+     * Replaces every run of repeated text, optionally separated by whitespace, with a single copy. Runs are found the
+     * same way {@code (.+?)\s*(\1\s*)+} finds them: from left to right, taking the shortest repeating unit at each
+     * position, where a unit can't span lines.
+     * @param text The text
+     * @return The text with repeats collapsed
+     */
+    public static String collapseRepeats(String text) {
+        int length = text.length();
+        StringBuilder sb = null;
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            long repeat = findRepeat(text, i);
+            if (repeat == NO_REPEAT) {
+                i++;
+                continue;
+            }
+
+            if (sb == null) {
+                sb = new StringBuilder(length);
+            }
+
+            int unitLength = (int) (repeat >>> 32);
+            sb.append(text, copied, i + unitLength);
+            copied = i = (int) repeat;
+        }
+
+        return sb == null ? text : sb.append(text, copied, length).toString();
+    }
+
+    /**
+     * Finds the shortest unit starting at an index that is repeated right after itself
+     * @return The length of the unit in the upper 32 bits and the end of the run in the lower 32 bits, or
+     * {@link #NO_REPEAT} if no unit starting at the index repeats
+     */
+    private static long findRepeat(String text, int start) {
+        int length = text.length();
+        boolean startsWithWhitespace = isWhitespace(text.charAt(start));
+        int unitEnd = start;
+        while (unitEnd < length) {
+            int c = text.codePointAt(unitEnd);
+            if (isLineTerminator(c)) {
+                return NO_REPEAT;
+            }
+
+            unitEnd += Character.charCount(c);
+            int unit = unitEnd - start;
+            if (unitEnd + unit > length) {
+                return NO_REPEAT;
+            }
+
+            // The whitespace between the unit and its copy is greedy, but gives back characters if the unit itself
+            // starts with whitespace
+            int spaces = whitespaceAt(text, unitEnd);
+            for (int k = spaces; k >= 0 && (k == spaces || startsWithWhitespace); k--) {
+                int copy = unitEnd + k;
+                if (copy + unit <= length && text.regionMatches(copy, text, start, unit)) {
+                    int end = copy + unit;
+                    while (true) {
+                        int next = end + whitespaceAt(text, end);
+                        if (next + unit > length || !text.regionMatches(next, text, start, unit)) {
+                            return ((long) unit << 32) | next;
+                        }
+
+                        end = next + unit;
+                    }
+                }
+            }
+        }
+
+        return NO_REPEAT;
+    }
+
+    private static int whitespaceAt(String text, int index) {
+        int count = 0;
+        while (index + count < text.length() && isWhitespace(text.charAt(index + count))) {
+            count++;
+        }
+
+        return count;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+    }
+
+    private static void markZeroWidth(int from, int to) {
+        for (int c = from; c <= to; c++) {
+            ZERO_WIDTH[c >>> 6] |= 1L << c;
+        }
+    }
+}
@@ -15,20 +15,29 @@
  */
 package com.jagrosh.vortex.automod;
 
+import com.jagrosh.vortex.utils.AhoCorasick;
 import com.jagrosh.vortex.utils.OtherUtil;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
+import java.util.*;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
  */
+@Slf4j
 public class CopypastaResolver {
-    private final HashMap<String, String[]> copypastas = new HashMap<>();
+    private volatile Compiled compiled = new Compiled(Collections.emptyMap());
 
     public void load() {
-        String[] lines = OtherUtil.readLines("copypastas");
+        load(OtherUtil.readLines("copypastas"));
+    }
+
+    /**
+     * @param lines Lines of a copypasta name, followed by {@code ||} and its phrases separated by {@code &&}
+     */
+    void load(String[] lines) {
         if (lines.length != 0) {
-            copypastas.clear();
+            Map<String, String[]> copypastas = new LinkedHashMap<>();
             String name;
             String[] words;
             for (String line : lines) {
@@ -40,32 +49,80 @@ public class CopypastaResolver {
 
                 copypastas.put(name, words);
             }
+
+            compiled = new Compiled(copypastas);
         }
     }
 
     public String getCopypasta(String message) {
-        String lower = message.toLowerCase();
-        boolean contains;
-        String[] words;
-        for (String name : copypastas.keySet()) {
-            words = copypastas.get(name);
-            if (words == null || words.length == 0) {
-                continue;
-            }
+        return compiled.find(message.toLowerCase());
+    }
 
-            contains = true;
-            for (String word : words) {
-                if (!lower.contains(word)) {
-                    contains = false;
-                    break;
+    /**
+     * Every phrase of every copypasta compiled into one automaton. Each phrase owns a bit of its copypasta's mask, and a
+     * copypasta is found once every bit of its mask has been set, so the message only has to be scanned once.
+     */
+    private static class Compiled {
+        private static final int MAX_PHRASES = Long.SIZE;
+
+        private final String[] names;
+        private final long[] fullMasks;
+        private final int[][] owners;
+        private final AhoCorasick automaton;
+
+        private Compiled(Map<String, String[]> copypastas) {
+            List<String> names = new ArrayList<>();
+            List<Long> fullMasks = new ArrayList<>();
+            Map<String, List<Integer>> owners = new LinkedHashMap<>();
+            for (Map.Entry<String, String[]> entry : copypastas.entrySet()) {
+                Set<String> phrases = new LinkedHashSet<>(Arrays.asList(entry.getValue()));
+                phrases.remove("");
+                if (phrases.isEmpty()) {
+                    continue;
+                }
+
+                if (phrases.size() > MAX_PHRASES) {
+                    log.warn("The " + entry.getKey() + " copypasta has more than " + MAX_PHRASES + " phrases, ignoring it");
+                    continue;
                 }
-            }
 
-            if (contains) {
-                return name;
+                int copypasta = names.size();
+                int bit = 0;
+                for (String phrase : phrases) {
+                    owners.computeIfAbsent(phrase, k -> new ArrayList<>()).add(copypasta * MAX_PHRASES + bit++);
+                }
+
+                names.add(entry.getKey());
+                fullMasks.add(bit == MAX_PHRASES ? -1L : (1L << bit) - 1);
             }
+
+            this.names = names.toArray(new String[0]);
+            this.fullMasks = fullMasks.stream().mapToLong(Long::longValue).toArray();
+            this.owners = owners.values().stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+            this.automaton = new AhoCorasick(new ArrayList<>(owners.keySet()));
         }
 
-        return null;
+        private String find(String lower) {
+            if (names.length == 0) {
+                return null;
+            }
+
+            long[] masks = new long[names.length];
+            String[] found = new String[1];
+            automaton.scan(lower, (pattern, end) -> {
+                for (int owner : owners[pattern]) {
+                    int copypasta = owner / MAX_PHRASES;
+                    masks[copypasta] |= 1L << (owner % MAX_PHRASES);
+                    if (masks[copypasta] == fullMasks[copypasta]) {
+                        found[0] = names[copypasta];
+                        return true;
+                    }
+                }
+
+                return false;
+            });
+
+            return found[0];
+        }
     }
 }
@@ -0,0 +1,242 @@
+package com.jagrosh.vortex.automod;
+
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the messages automod wants deleted per channel, and deletes them together after a short window. A channel
+ * flooded with spam then gets its messages bulk deleted 100 at a time, rather than using a REST call per message that
+ * all share the same rate limit bucket. Every channel can only have so many messages waiting to be deleted, including
+ * the ones in batches that were sent but not finished yet, and messages past that are dropped. A channel is forgotten
+ * once it has nothing waiting, sent or scheduled anymore.
+ * <p>
+ * Discord doesn't take an audit log reason for bulk deletes, so only a message that is deleted on its own is deleted
+ * with the reason it was queued with.
+ */
+@Slf4j
+public class DeletionCoalescer {
+    private static final int BATCH_SIZE = 100;
+    private static final long DROP_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
+    private final ScheduledExecutorService executor;
+    private final long window;
+    private final int maxPending;
+    private final ConcurrentHashMap<Long, Pending> channels = new ConcurrentHashMap<>();
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder restCalls = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long lastDropLog = System.nanoTime() - DROP_LOG_INTERVAL;
+
+    /**
+     * Creates a {@link DeletionCoalescer}
+     * @param executor The executor to flush channels on
+     * @param window How long to wait for more messages in a channel before deleting them, in milliseconds
+     * @param maxPending The maximum amount of messages a single channel can have waiting to be deleted
+     */
+    public DeletionCoalescer(ScheduledExecutorService executor, long window, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("A channel must have room for at least one message");
+        }
+
+        this.executor = executor;
+        this.window = window;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Queues a message to be deleted
+     * @param message The message
+     * @param reason The audit log reason, or null for none
+     * @return True if the message will be deleted, false if its channel has too many messages waiting already
+     */
+    public boolean delete(Message message, String reason) {
+        return delete(message.getGuildChannel(), message.getIdLong(), reason);
+    }
+
+    /**
+     * Queues a message to be deleted
+     * @param channel The channel the message was sent in
+     * @param messageId The ID of the message
+     * @param reason The audit log reason, or null for none
+     * @return True if the message will be deleted, false if the channel has too many messages waiting already
+     */
+    public boolean delete(GuildMessageChannel channel, long messageId, String reason) {
+        long channelId = channel.getIdLong();
+        Pending pending;
+        boolean flushNow;
+        while (true) {
+            pending = channels.computeIfAbsent(channelId, id -> new Pending());
+            synchronized (pending) {
+                // The channel went idle and was forgotten between looking it up and locking it
+                if (pending.removed) {
+                    continue;
+                }
+
+                pending.channel = channel;
+                if (pending.ids.containsKey(messageId)) {
+                    return true;
+                }
+
+                if (pending.ids.size() + pending.inFlight >= maxPending) {
+                    drop();
+                    return false;
+                }
+
+                pending.ids.put(messageId, reason);
+                requested.increment();
+                flushNow = pending.ids.size() >= BATCH_SIZE;
+                if (!flushNow && pending.scheduled) {
+                    return true;
+                }
+
+                pending.scheduled = true;
+                break;
+            }
+        }
+
+        Pending target = pending;
+        if (flushNow) {
+            executor.execute(() -> flush(channelId, target));
+        } else {
+            executor.schedule(() -> flush(channelId, target), window, TimeUnit.MILLISECONDS);
+        }
+
+        return true;
+    }
+
+    private void flush(long channelId, Pending pending) {
+        List<String> ids;
+        String reason = null;
+        GuildMessageChannel channel;
+        synchronized (pending) {
+            pending.scheduled = false;
+            if (pending.ids.isEmpty()) {
+                removeIfIdle(channelId, pending);
+                return;
+            }
+
+            ids = new ArrayList<>(Math.min(pending.ids.size(), BATCH_SIZE));
+            for (Iterator<Map.Entry<Long, String>> it = pending.ids.entrySet().iterator(); it.hasNext() && ids.size() < BATCH_SIZE; ) {
+                Map.Entry<Long, String> entry = it.next();
+                ids.add(Long.toUnsignedString(entry.getKey()));
+                reason = entry.getValue();
+                it.remove();
+            }
+
+            pending.inFlight += ids.size();
+            channel = pending.channel;
+
+            // Whatever didn't fit in this batch goes in the next one right away
+            if (!pending.ids.isEmpty()) {
+                pending.scheduled = true;
+                executor.execute(() -> flush(channelId, pending));
+            }
+        }
+
+        try {
+            // A single message is deleted on its own, which unlike a bulk delete keeps the reason
+            List<CompletableFuture<Void>> requests = ids.size() == 1
+                    ? List.of(channel.deleteMessageById(ids.get(0)).reason(reason).submit())
+                    : channel.purgeMessagesById(ids);
+            sent.add(ids.size());
+            restCalls.add(requests.size());
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).whenComplete((v, t) -> release(channelId, pending, ids.size()));
+        } catch (PermissionException e) {
+            release(channelId, pending, ids.size());
+        } catch (Exception e) {
+            release(channelId, pending, ids.size());
+            log.error("Error in deleting messages in channel " + channelId, e);
+        }
+    }
+
+    private void release(long channelId, Pending pending, int amount) {
+        synchronized (pending) {
+            pending.inFlight -= amount;
+            removeIfIdle(channelId, pending);
+        }
+    }
+
+    /**
+     * Forgets a channel that has nothing waiting, sent or scheduled, so deleted channels and their entities don't stay
+     * around. Has to be called while holding the lock of the channel.
+     */
+    private void removeIfIdle(long channelId, Pending pending) {
+        if (pending.ids.isEmpty() && pending.inFlight == 0 && !pending.scheduled) {
+            pending.removed = true;
+            channels.remove(channelId, pending);
+        }
+    }
+
+    private void drop() {
+        dropped.increment();
+        long now = System.nanoTime();
+        if (now - lastDropLog > DROP_LOG_INTERVAL) {
+            lastDropLog = now;
+            log.warn("Automod deletions are backed up, " + dropped.sum() + " deletions have been dropped so far");
+        }
+    }
+
+    /**
+     * @return The amount of messages currently waiting to be deleted across all channels, including ones in batches
+     * that have not finished yet
+     */
+    public int getPending() {
+        int total = 0;
+        for (Pending pending : channels.values()) {
+            synchronized (pending) {
+                total += pending.ids.size() + pending.inFlight;
+            }
+        }
+
+        return total;
+    }
+
+    public long getRequested() {
+        return requested.sum();
+    }
+
+    public long getRestCalls() {
+        return restCalls.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return The amount of REST calls that were saved by deleting messages together rather than one by one
+     */
+    public long getSaved() {
+        return sent.sum() - restCalls.sum();
+    }
+
+    /**
+     * @return The amount of channels that have messages waiting, sent or scheduled
+     */
+    int getChannels() {
+        return channels.size();
+    }
+
+    private static class Pending {
+        /** The IDs of the messages waiting to be deleted, with their audit log reasons */
+        private final LinkedHashMap<Long, String> ids = new LinkedHashMap<>();
+        private GuildMessageChannel channel;
+        private int inFlight = 0;
+        private boolean scheduled = false;
+        private boolean removed = false;
+    }
+}
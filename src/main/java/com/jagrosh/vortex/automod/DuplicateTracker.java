@@ -0,0 +1,194 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.LongLongMap;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the most recent messages of every member for the anti-duplicate check. Messages are remembered as
+ * 64-bit fingerprints of their condensed content along with the time they were sent, so a member that keeps sending the
+ * same message is caught even if they alternate between several messages. Members are kept in a fixed amount of
+ * striped LRU maps, keyed by a long mixed from the guild and user ID. Members whose keys collide replace each other.
+ */
+public class DuplicateTracker {
+    private static final int STRIPES = 16;
+    private static final int RING_SIZE = 16;
+
+    private final long window;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Creates a {@link DuplicateTracker}
+     * @param capacity The maximum amount of members to keep track of
+     * @param window How long ago a message can have been sent in milliseconds and still count as a duplicate
+     */
+    public DuplicateTracker(int capacity, long window) {
+        this.window = window;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1, capacity / STRIPES));
+        }
+    }
+
+    /**
+     * Records a message, and counts how many duplicates of it the member sent within the window
+     * @param guildId The ID of the guild the message was sent in
+     * @param userId The ID of the author
+     * @param content The condensed content of the message
+     * @param time When the message was sent or edited, in epoch milliseconds
+     * @return The amount of earlier messages that are duplicates of this one, which is 0 the first time it is sent
+     */
+    public int record(long guildId, long userId, String content, long time) {
+        long key = key(guildId, userId);
+        Stripe stripe = stripes[(int) (key >>> 60)];
+        synchronized (stripe) {
+            History history = stripe.get(key);
+            if (history == null || history.guildId != guildId || history.userId != userId) {
+                history = new History(guildId, userId);
+                stripe.put(key, history);
+            }
+
+            return history.record(fingerprint(content), time, window);
+        }
+    }
+
+    static long key(long guildId, long userId) {
+        long h = guildId * 0x9E3779B97F4A7C15L + userId;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        // LongLongMap can't hold 0, and the pairs that end up on 1 instead are told apart like any other collision
+        return h == 0 ? 1 : h;
+    }
+
+    private static long fingerprint(String content) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            h ^= content.charAt(i);
+            h *= 0x100000001B3L;
+        }
+
+        return h;
+    }
+
+    /**
+     * An LRU map from mixed keys to histories, with its keys in a {@link LongLongMap} pointing into fixed arrays that
+     * are linked from the most to the least recently used, so looking up a member doesn't box its key
+     */
+    private static class Stripe {
+        private static final int NONE = -1;
+
+        private final LongLongMap slots;
+        private final long[] keys;
+        private final History[] histories;
+        private final int[] newer, older;
+        private int newest = NONE, oldest = NONE;
+        private int size = 0;
+
+        private Stripe(int capacity) {
+            this.slots = new LongLongMap(capacity);
+            this.keys = new long[capacity];
+            this.histories = new History[capacity];
+            this.newer = new int[capacity];
+            this.older = new int[capacity];
+            Arrays.fill(newer, NONE);
+            Arrays.fill(older, NONE);
+        }
+
+        private History get(long key) {
+            int slot = (int) slots.get(key, NONE);
+            if (slot == NONE) {
+                return null;
+            }
+
+            unlink(slot);
+            linkNewest(slot);
+            return histories[slot];
+        }
+
+        /**
+         * Puts a history for a key that isn't in the stripe, evicting the least recently used one if it is full
+         */
+        private void put(long key, History history) {
+            int slot = (int) slots.get(key, NONE);
+            if (slot == NONE) {
+                if (size < keys.length) {
+                    slot = size++;
+                } else {
+                    slot = oldest;
+                    slots.remove(keys[slot], NONE);
+                }
+
+                keys[slot] = key;
+                slots.put(key, slot, NONE);
+            }
+
+            unlink(slot);
+            histories[slot] = history;
+            linkNewest(slot);
+        }
+
+        private void unlink(int slot) {
+            if (slot == newest) {
+                newest = older[slot];
+            } else if (newer[slot] != NONE) {
+                older[newer[slot]] = older[slot];
+            }
+
+            if (slot == oldest) {
+                oldest = newer[slot];
+            } else if (older[slot] != NONE) {
+                newer[older[slot]] = newer[slot];
+            }
+
+            newer[slot] = NONE;
+            older[slot] = NONE;
+        }
+
+        private void linkNewest(int slot) {
+            older[slot] = newest;
+            newer[slot] = NONE;
+            if (newest != NONE) {
+                newer[newest] = slot;
+            }
+
+            newest = slot;
+            if (oldest == NONE) {
+                oldest = slot;
+            }
+        }
+    }
+
+    private static class History {
+        private final long guildId, userId;
+        private final long[] fingerprints = new long[RING_SIZE];
+        private final long[] times = new long[RING_SIZE];
+        private int size = 0;
+        private int next = 0;
+        private int streak = 0;
+
+        private History(long guildId, long userId) {
+            this.guildId = guildId;
+            this.userId = userId;
+        }
+
+        private int record(long fingerprint, long time, long window) {
+            int matches = 0;
+            for (int i = 0; i < size; i++) {
+                if (fingerprints[i] == fingerprint && time - times[i] < window) {
+                    matches++;
+                }
+            }
+
+            // The ring only remembers so many messages, so a member sending the same message over and over is also
+            // counted as a streak, which can go past the size of the ring
+            int last = (next + RING_SIZE - 1) % RING_SIZE;
+            streak = size > 0 && fingerprints[last] == fingerprint && time - times[last] < window ? streak + 1 : 0;
+
+            fingerprints[next] = fingerprint;
+            times[next] = time;
+            next = (next + 1) % RING_SIZE;
+            size = Math.min(size + 1, RING_SIZE);
+            return Math.max(matches, streak);
+        }
+    }
+}
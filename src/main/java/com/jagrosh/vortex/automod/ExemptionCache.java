@@ -0,0 +1,173 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.database.managers.IgnoreManager;
+import com.jagrosh.vortex.utils.LongLongMap;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches whether automod runs for a member in a channel, so the permission and ignore checks only happen the first time
+ * a member is looked at in a channel after something they depend on changed. The verdicts of a guild are kept in a
+ * primitive hash table keyed by the member ID mixed with the channel ID, and every value holds the channel ID along
+ * with the verdict, so an entry can't be mistaken for the one of another member and channel.
+ * <p>
+ * Role, permission override, owner and ignore list changes drop the verdicts of the whole guild, and a member's role
+ * changes only drop theirs. A verdict that was worked out while its guild's verdicts were being dropped isn't kept.
+ */
+public class ExemptionCache {
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final IgnoreManager ignores;
+    private final int maxPerGuild;
+    private final ConcurrentHashMap<Long, Verdicts> guilds = new ConcurrentHashMap<>();
+
+    /**
+     * @param ignores The ignored roles and channels
+     * @param maxPerGuild The most verdicts to keep per guild, after which they are all dropped
+     */
+    public ExemptionCache(IgnoreManager ignores, int maxPerGuild) {
+        this.ignores = ignores;
+        this.maxPerGuild = maxPerGuild;
+    }
+
+    /**
+     * @param member The member
+     * @param channel The channel, or null to only check the member
+     * @return True if automod should run for the member, or false if they are exempt
+     */
+    public boolean shouldPerformAutomod(Member member, TextChannel channel) {
+        long channelId = channel == null ? 0 : channel.getIdLong();
+        long key = member.getIdLong() ^ mix(channelId);
+        Verdicts verdicts = guilds.get(member.getGuild().getIdLong());
+        if (verdicts == null) {
+            verdicts = guilds.computeIfAbsent(member.getGuild().getIdLong(), id -> new Verdicts());
+        }
+
+        long generation;
+        synchronized (verdicts) {
+            long value = verdicts.map.get(key, MISSING);
+            if (value != MISSING && (value < 0 ? ~value : value) == channelId) {
+                return value >= 0;
+            }
+
+            generation = verdicts.generation;
+        }
+
+        // ignore broken guilds, without keeping the verdict, as the owner may just not be loaded yet
+        if (member.getGuild().getOwner() == null) {
+            return false;
+        }
+
+        boolean perform = check(member, channel);
+        synchronized (verdicts) {
+            if (verdicts.generation == generation && key != 0) {
+                if (verdicts.map.size() >= maxPerGuild) {
+                    verdicts.map.clear();
+                }
+
+                verdicts.map.put(key, perform ? channelId : ~channelId, MISSING);
+            }
+        }
+
+        return perform;
+    }
+
+    /**
+     * Drops the verdicts of a guild, such as after its roles, permission overrides or ignore list changed
+     * @param guildId The ID of the guild
+     */
+    public void invalidate(long guildId) {
+        Verdicts verdicts = guilds.get(guildId);
+        if (verdicts != null) {
+            synchronized (verdicts) {
+                verdicts.map.clear();
+                verdicts.generation++;
+            }
+        }
+    }
+
+    /**
+     * Drops the verdicts of a member, such as after their roles changed. If the member is the bot itself, the verdicts
+     * of the whole guild are dropped, as it changes who the bot can interact with.
+     * @param guild The guild
+     * @param memberId The ID of the member
+     */
+    public void invalidate(Guild guild, long memberId) {
+        if (memberId == guild.getSelfMember().getIdLong()) {
+            invalidate(guild.getIdLong());
+            return;
+        }
+
+        Verdicts verdicts = guilds.get(guild.getIdLong());
+        if (verdicts != null) {
+            synchronized (verdicts) {
+                verdicts.map.removeIf((key, value) -> (key ^ mix(value < 0 ? ~value : value)) == memberId);
+                verdicts.generation++;
+            }
+        }
+    }
+
+    /**
+     * Forgets a guild, such as after the bot left it
+     * @param guildId The ID of the guild
+     */
+    public void remove(long guildId) {
+        Verdicts verdicts = guilds.remove(guildId);
+        if (verdicts != null) {
+            synchronized (verdicts) {
+                verdicts.generation++;
+            }
+        }
+    }
+
+    private boolean check(Member member, TextChannel channel) {
+        // ignore bots
+        if (member.getUser().isBot()) {
+            return false;
+        }
+
+        // ignore users vortex cant interact with
+        if (!member.getGuild().getSelfMember().canInteract(member)) {
+            return false;
+        }
+
+        // ignore users that can kick, ban, or manage server
+        if (member.hasPermission(Permission.KICK_MEMBERS) || member.hasPermission(Permission.BAN_MEMBERS) || member.hasPermission(Permission.MANAGE_SERVER)) {
+            return false;
+        }
+
+        // if a channel is specified, ignore users that can manage messages in that channel
+        if (channel != null && (member.hasPermission(channel, Permission.MESSAGE_MANAGE) || isIgnored(channel))) {
+            return false;
+        }
+
+        return !isIgnored(member);
+    }
+
+    /**
+     * @return True if the channel is on its guild's ignore list
+     */
+    boolean isIgnored(TextChannel channel) {
+        return ignores.isIgnored(channel);
+    }
+
+    /**
+     * @return True if the member has a role on their guild's ignore list
+     */
+    boolean isIgnored(Member member) {
+        return ignores.isIgnored(member);
+    }
+
+    private static long mix(long channelId) {
+        return channelId * 0x9E3779B97F4A7C15L;
+    }
+
+    private static class Verdicts {
+        private final LongLongMap map = new LongLongMap();
+        private long generation = 0;
+    }
+}
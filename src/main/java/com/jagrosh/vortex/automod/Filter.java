@@ -15,27 +15,41 @@
  */
 package com.jagrosh.vortex.automod;
 
+import com.jagrosh.vortex.utils.AhoCorasick;
+import com.jagrosh.vortex.utils.BoundedRegex;
+import com.jagrosh.vortex.utils.BoundedRegex.BudgetExceededException;
+import lombok.extern.slf4j.Slf4j;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
  */
+@Slf4j
 public class Filter {
     public final static int MAX_CONTENT_LENGTH = 255;
 
     private final static String[] TEST_CASES = {"welcome", "i will follow the rules", "this is a sentence"};
-    public final List<Item> items = new ArrayList<>();
+    public final List<Item> items;
+    private final Compiled compiled;
+
+    private Filter(List<Item> items) {
+        this.items = Collections.unmodifiableList(items);
+        this.compiled = new Compiled(items);
+    }
 
     public boolean test(String message) {
         if (items.isEmpty()) {
             return false;
         }
 
-        String lower = message.toLowerCase();
-        return items.stream().anyMatch(item -> item.test(lower));
+        return compiled.test(message.toLowerCase());
     }
 
     public String printContent() {
@@ -44,6 +58,20 @@ public class Filter {
         return sb.toString().trim();
     }
 
+    /**
+     * @return The total amount of times the regexes of this filter ran out of their matching budget
+     */
+    public int getBudgetOverruns() {
+        return items.stream().mapToInt(item -> item instanceof Regex regex ? regex.getOverruns() : 0).sum();
+    }
+
+    /**
+     * @return The regexes of this filter that were disabled for repeatedly running out of their matching budget
+     */
+    public List<Regex> getDisabledRegexes() {
+        return items.stream().filter(item -> item instanceof Regex regex && regex.isDisabled()).map(item -> (Regex) item).collect(Collectors.toList());
+    }
+
     public String printContentEscaped() {
         return printContent().replace("*", "\\*").replace("`", "\\`");
     }
@@ -55,7 +83,7 @@ public class Filter {
         }
 
         // begin parsing
-        Filter filter = new Filter();
+        List<Item> items = new ArrayList<>();
         String current = content.trim();
         while (!current.isEmpty()) {
             switch (current.charAt(0)) {
@@ -65,7 +93,7 @@ public class Filter {
                         throw new IllegalArgumentException("Missing closing quotations within provided filtered quote");
                     }
 
-                    filter.items.add(new Quote(current.substring(1, index)));
+                    items.add(new Quote(current.substring(1, index)));
                     current = current.substring(index + 1).trim();
                 }
                 case Regex.CHAR -> {
@@ -75,7 +103,7 @@ public class Filter {
                     }
 
                     try {
-                        filter.items.add(new Regex(current.substring(1, index)));
+                        items.add(new Regex(current.substring(1, index)));
                     } catch (PatternSyntaxException ex) {
                         throw new IllegalArgumentException("Invalid regex pattern `" + current.substring(1, index) + "`");
                     }
@@ -84,17 +112,19 @@ public class Filter {
                 }
                 default -> {
                     String[] parts = current.split("\\s+", 2);
-                    filter.items.add(new Glob(parts[0]));
+                    items.add(new Glob(parts[0]));
                     current = parts.length == 1 ? "" : parts[1];
                 }
             }
         }
 
         // post checks
-        if (filter.items.isEmpty()) {
+        if (items.isEmpty()) {
             throw new IllegalArgumentException("Filter contains no valid filtered items");
         }
 
+        Filter filter = new Filter(items);
+
         if (filter.printContent().length() > MAX_CONTENT_LENGTH) {
             throw new IllegalArgumentException("Filter content is longer than " + MAX_CONTENT_LENGTH + " characters");
         }
@@ -114,6 +144,87 @@ public class Filter {
         return filter;
     }
 
+    /**
+     * All of the literal items of a filter (globs and quotes) compiled into a single automaton, so that a message only
+     * needs to be read once no matter how many items the filter has. Word boundaries and wildcards of globs are checked
+     * whenever the automaton reports a match. Regexes that contain a required literal have it added to the same
+     * automaton, and are only run if that literal was seen. Everything else is tested one at a time afterwards.
+     */
+    private static class Compiled {
+        private final Item[] literalItems;
+        private final int[] regexSlots;
+        private final Regex[] prefilteredRegexes;
+        private final AhoCorasick automaton;
+        private final Item[] otherItems;
+
+        private Compiled(List<Item> items) {
+            List<Item> literal = new ArrayList<>();
+            List<String> patterns = new ArrayList<>();
+            List<Regex> prefiltered = new ArrayList<>();
+            List<Item> other = new ArrayList<>();
+            for (Item item : items) {
+                if (item instanceof Glob glob && !glob.glob.isEmpty()) {
+                    literal.add(glob);
+                    patterns.add(glob.glob);
+                } else if (item instanceof Quote quote && !quote.quote.isEmpty()) {
+                    literal.add(quote);
+                    patterns.add(quote.quote);
+                } else if (item instanceof Regex regex && regex.requiredLiteral != null) {
+                    literal.add(regex);
+                    patterns.add(regex.requiredLiteral);
+                    prefiltered.add(regex);
+                } else {
+                    other.add(item);
+                }
+            }
+
+            this.literalItems = literal.toArray(new Item[0]);
+            this.regexSlots = new int[literalItems.length];
+            for (int i = 0, slot = 0; i < literalItems.length; i++) {
+                regexSlots[i] = literalItems[i] instanceof Regex ? slot++ : -1;
+            }
+
+            this.prefilteredRegexes = prefiltered.toArray(new Regex[0]);
+            this.automaton = new AhoCorasick(patterns);
+            this.otherItems = other.toArray(new Item[0]);
+        }
+
+        private boolean test(String lower) {
+            boolean[] candidates = new boolean[prefilteredRegexes.length];
+            boolean found = automaton.scan(lower, (pattern, end) -> {
+                if (regexSlots[pattern] != -1) {
+                    candidates[regexSlots[pattern]] = true;
+                    return false;
+                }
+
+                if (literalItems[pattern] instanceof Glob glob) {
+                    int start = end - glob.glob.length();
+                    return (glob.startWildcard || Glob.isWordBoundary(lower, start - 1)) && (glob.endWildcard || Glob.isWordBoundary(lower, end));
+                }
+
+                return true;
+            });
+
+            if (found) {
+                return true;
+            }
+
+            for (int i = 0; i < prefilteredRegexes.length; i++) {
+                if (candidates[i] && prefilteredRegexes[i].test(lower)) {
+                    return true;
+                }
+            }
+
+            for (Item item : otherItems) {
+                if (item.test(lower)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
     public static abstract class Item {
         abstract boolean test(String message);
 
@@ -180,15 +291,39 @@ public class Filter {
 
     public static class Regex extends Item {
         public final static char CHAR = '`';
+        public final static int MAX_OVERRUNS = 5;
         public final Pattern pattern;
+        private final String requiredLiteral;
+        private final AtomicInteger overruns = new AtomicInteger();
 
         public Regex(String pattern) throws PatternSyntaxException {
             this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+            this.requiredLiteral = RegexLiterals.requiredLiteral(pattern);
         }
 
         @Override
         public boolean test(String message) {
-            return pattern.matcher(message).find();
+            if (isDisabled()) {
+                return false;
+            }
+
+            try {
+                return BoundedRegex.find(pattern, message);
+            } catch (BudgetExceededException ex) {
+                if (overruns.incrementAndGet() == MAX_OVERRUNS) {
+                    log.warn("Disabling filter regex `" + pattern.pattern() + "` after it exceeded its budget " + MAX_OVERRUNS + " times");
+                }
+
+                return false;
+            }
+        }
+
+        public int getOverruns() {
+            return overruns.get();
+        }
+
+        public boolean isDisabled() {
+            return overruns.get() >= MAX_OVERRUNS;
         }
 
         @Override
@@ -15,32 +15,149 @@
  */
 package com.jagrosh.vortex.automod;
 
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.BoundedCache;
+import com.typesafe.config.Config;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Invite;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
+ * Resolves invite codes to the ID of the guild they lead to, or 0 if the invite doesn't lead to a guild. Lookups for the
+ * same code are shared while they are in flight, results are cached for a while (invalid invites for a shorter while),
+ * and only a limited amount of lookups are sent to Discord at once. Lookups that would wait behind too many others are
+ * dropped, and resolve to {@link #UNRESOLVED}, which callers shouldn't treat as an invite to another guild.
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class InviteResolver {
+    /** What a lookup that was dropped resolves to, since it isn't known where the invite leads */
+    public static final long UNRESOLVED = -1L;
+
     private final Logger log = LoggerFactory.getLogger(InviteResolver.class);
-    private final FixedCache<String, Long> cached = new FixedCache<>(5000);
+    private final BoundedCache<String, Long> resolved = BoundedCache.<String, Long>builder("invites").maximumSize(5000).expireAfterWrite(6, TimeUnit.HOURS).build();
+    private final BoundedCache<String, Boolean> unknown = BoundedCache.<String, Boolean>builder("unknown-invites").maximumSize(5000).expireAfterWrite(10, TimeUnit.MINUTES).build();
+    private final ConcurrentHashMap<String, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final int maxInFlight;
+    private final int queueSize;
+
+    public InviteResolver(Config config) {
+        this.maxInFlight = config.getInt("invite-resolver.max-in-flight");
+        this.queueSize = config.getInt("invite-resolver.queue-size");
+    }
+
+    /**
+     * Resolves an invite code
+     * @param code The invite code
+     * @param jda The JDA instance to make the request with
+     * @return A future that completes with the guild ID the invite leads to, 0 if it doesn't lead to a guild, or
+     * {@link #UNRESOLVED} if the lookup was dropped. The future is already completed if the result was cached.
+     */
+    public CompletableFuture<Long> resolve(String code, JDA jda) {
+        Long guildId = getCached(code);
+        if (guildId != null) {
+            return CompletableFuture.completedFuture(guildId);
+        }
+
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        CompletableFuture<Long> existing = inFlight.putIfAbsent(code, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            rejected.increment();
+            inFlight.remove(code);
+            future.complete(UNRESOLVED);
+            return future;
+        }
 
-    public long resolve(String code, JDA jda) {
         log.debug("Attempting to resolve " + code);
-        if (cached.contains(code)) {
-            return cached.get(code);
+        waiting.add(() -> lookup(code, jda, future));
+        drain();
+        return future;
+    }
+
+    /**
+     * @return The amount of invites waiting to be resolved
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The amount of invites that weren't resolved because too many were waiting
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private Long getCached(String code) {
+        Long guildId = resolved.get(code);
+        if (guildId != null) {
+            return guildId;
         }
 
+        return unknown.get(code) == null ? null : 0L;
+    }
+
+    private void lookup(String code, JDA jda, CompletableFuture<Long> future) {
         try {
-            Invite i = Invite.resolve(jda, code).complete(false);
-            cached.put(code, i.getGuild().getIdLong());
-            return i.getGuild().getIdLong();
+            Invite.resolve(jda, code).submit(false).whenComplete((invite, err) -> finish(code, future, invite, err));
         } catch (Exception ex) {
-            cached.put(code, 0L);
-            return 0L;
+            finish(code, future, null, ex);
+        }
+    }
+
+    private void finish(String code, CompletableFuture<Long> future, Invite invite, Throwable err) {
+        long guildId = 0L;
+        if (err == null) {
+            guildId = invite.getGuild() == null ? 0L : invite.getGuild().getIdLong();
+            unknown.remove(code);
+            resolved.put(code, guildId);
+        } else if (err instanceof ErrorResponseException ex && ex.getErrorResponse() == ErrorResponse.UNKNOWN_INVITE) {
+            resolved.remove(code);
+            unknown.put(code, true);
+        } else {
+            log.debug("Failed to resolve " + code, err);
+        }
+
+        inFlight.remove(code);
+        active.decrementAndGet();
+        future.complete(guildId);
+        drain();
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int current = active.get();
+            if (current >= maxInFlight) {
+                return;
+            }
+
+            if (active.compareAndSet(current, current + 1)) {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    active.decrementAndGet();
+                } else {
+                    queued.decrementAndGet();
+                    next.run();
+                }
+            }
         }
     }
 }
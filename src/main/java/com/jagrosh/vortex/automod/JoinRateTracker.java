@@ -0,0 +1,83 @@
+package com.jagrosh.vortex.automod;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of when members recently joined every guild, for auto anti-raid mode. Every guild keeps a ring of its most
+ * recent join times, holding as many joins as the anti-raid threshold needs. Checking if there were at least n joins in
+ * a window then only means looking at the n-th most recent join, no matter how many members the guild has.
+ */
+public class JoinRateTracker {
+    private final ConcurrentHashMap<Long, Joins> guilds = new ConcurrentHashMap<>();
+
+    /**
+     * Records a join
+     * @param guildId The ID of the guild that was joined
+     * @param time When the member joined, in epoch milliseconds
+     * @param keep The least amount of recent joins that need to be remembered for this guild
+     * @return When the member before this one joined in epoch milliseconds, or -1 if there is no recorded earlier join
+     */
+    public long recordJoin(long guildId, long time, int keep) {
+        return guilds.computeIfAbsent(guildId, id -> new Joins()).add(time, Math.max(1, keep));
+    }
+
+    /**
+     * Checks if a guild had at least a certain amount of joins since a certain time
+     * @param guildId The ID of the guild
+     * @param count The amount of joins
+     * @param since The start of the window in epoch milliseconds, exclusive
+     * @return True if at least that many joins were recorded after the start of the window
+     */
+    public boolean hasJoinsSince(long guildId, int count, long since) {
+        Joins joins = guilds.get(guildId);
+        return joins != null && joins.hasJoinsSince(count, since);
+    }
+
+    /**
+     * Forgets the joins of a guild, such as when the bot leaves it
+     * @param guildId The ID of the guild
+     */
+    public void remove(long guildId) {
+        guilds.remove(guildId);
+    }
+
+    private static class Joins {
+        private long[] times = new long[1];
+        private int size = 0;
+        private int next = 0;
+
+        private synchronized long add(long time, int keep) {
+            long previous = size == 0 ? -1 : times[(next + times.length - 1) % times.length];
+            if (keep > times.length) {
+                grow(keep);
+            }
+
+            times[next] = time;
+            next = (next + 1) % times.length;
+            size = Math.min(size + 1, times.length);
+            return previous;
+        }
+
+        private synchronized boolean hasJoinsSince(int count, long since) {
+            if (count < 1) {
+                return true;
+            }
+
+            if (count > size) {
+                return false;
+            }
+
+            return times[(next - count + times.length) % times.length] > since;
+        }
+
+        private void grow(int capacity) {
+            long[] grown = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                grown[i] = times[(next - size + i + times.length) % times.length];
+            }
+
+            times = grown;
+            next = size % grown.length;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.Constants;
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.database.managers.MemberJobManager.SavedJob;
+import com.jagrosh.vortex.utils.FormatUtil;
+import com.jagrosh.vortex.utils.OtherUtil;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.ISnowflake;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs jobs that go through every member of a guild, such as dehoisting, in the background. A job only has one request
+ * in flight at a time, so it goes as fast as the rate limit bucket of its requests allows without flooding the
+ * requester, and other requests of the guild still get through. Every job keeps a status message up to date with its
+ * progress, can be cancelled, and saves its progress to the database so it picks up where it left off after a restart.
+ */
+@Slf4j
+public class MemberJobs {
+    private static final int MEMBERS_PER_STEP = 1000;
+
+    private final Vortex vortex;
+    private final long statusInterval;
+    private final ConcurrentHashMap<Long, Job> running = new ConcurrentHashMap<>();
+
+    public MemberJobs(Vortex vortex, Config config) {
+        this.vortex = vortex;
+        this.statusInterval = config.getDuration("member-jobs.status-interval", TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a job
+     * @param guild The guild to go through the members of
+     * @param type The type of job
+     * @param argument What to start the job with, such as the dehoist symbol
+     * @param status The message to keep up to date with the progress of the job
+     * @return False if the guild already has a job running
+     */
+    public boolean start(Guild guild, Type type, String argument, Message status) {
+        Job job = new Job(new SavedJob(guild.getIdLong(), type.name(), argument, status.getChannel().getIdLong(), status.getIdLong(), 0, 0, 0));
+        if (running.putIfAbsent(guild.getIdLong(), job) != null) {
+            return false;
+        }
+
+        job.begin(guild);
+        return true;
+    }
+
+    /**
+     * Cancels the job of a guild. The job stops before its next request.
+     * @param guild The guild
+     * @return False if the guild has no job running
+     */
+    public boolean cancel(Guild guild) {
+        Job job = running.get(guild.getIdLong());
+        if (job == null) {
+            return false;
+        }
+
+        job.cancelled = true;
+        return true;
+    }
+
+    public boolean isRunning(Guild guild) {
+        return running.containsKey(guild.getIdLong());
+    }
+
+    /**
+     * Resumes every saved job of the guilds of a shard, such as after a restart
+     * @param jda The shard
+     */
+    public void resume(JDA jda) {
+        for (SavedJob saved : vortex.getDatabase().memberJobs.getJobs()) {
+            Guild guild = jda.getGuildById(saved.guildId());
+            if (guild == null) {
+                continue;
+            }
+
+            try {
+                Type.valueOf(saved.type());
+            } catch (IllegalArgumentException e) {
+                log.warn("Dropping member job of unknown type " + saved.type() + " in guild " + saved.guildId());
+                vortex.getDatabase().memberJobs.removeJob(saved.guildId());
+                continue;
+            }
+
+            Job job = new Job(saved);
+            if (running.putIfAbsent(saved.guildId(), job) == null) {
+                log.info("Resuming " + saved.type() + " job in guild " + saved.guildId() + " after " + saved.processed() + " members");
+                job.begin(guild);
+            }
+        }
+    }
+
+    private class Job {
+        private final Type type;
+        private final String argument;
+        private final long guildId, channelId, messageId;
+        private long cursor;
+        private int processed, changed, total;
+        private long[] members;
+        private int index = 0;
+        private long lastStatus = 0;
+        private volatile boolean cancelled = false;
+
+        private Job(SavedJob saved) {
+            this.type = Type.valueOf(saved.type());
+            this.argument = saved.argument();
+            this.guildId = saved.guildId();
+            this.channelId = saved.channelId();
+            this.messageId = saved.messageId();
+            this.cursor = saved.cursor();
+            this.processed = saved.processed();
+            this.changed = saved.changed();
+        }
+
+        private void begin(Guild guild) {
+            long after = cursor;
+            members = guild.getMemberCache().applyStream(stream -> stream.mapToLong(ISnowflake::getIdLong).filter(id -> id > after).sorted().toArray());
+            total = processed + members.length;
+            save();
+            vortex.getThreadpool().execute(this::step);
+        }
+
+        private void step() {
+            try {
+                doStep();
+            } catch (Exception e) {
+                // The saved progress is kept, so the job can be resumed after a restart
+                log.error("Error in " + type + " job in guild " + guildId, e);
+                running.remove(guildId);
+            }
+        }
+
+        private void doStep() {
+            Guild guild = vortex.getJda().getGuildById(guildId);
+            if (guild == null) {
+                // The guild is unavailable, so the job waits for the next time the shard is ready
+                running.remove(guildId);
+                return;
+            }
+
+            if (cancelled) {
+                finish(guild, Constants.WARNING + " Cancelled " + describe());
+                return;
+            }
+
+            for (int handled = 0; index < members.length && handled < MEMBERS_PER_STEP; handled++) {
+                long memberId = members[index++];
+                Member member = guild.getMemberById(memberId);
+                RestAction<?> action = member == null ? null : type.apply(member, argument);
+                if (action == null) {
+                    advance(memberId, false);
+                    continue;
+                }
+
+                action.submit().whenComplete((v, t) -> {
+                    advance(memberId, t == null);
+                    next(guild);
+                });
+                return;
+            }
+
+            if (index >= members.length) {
+                finish(guild, Constants.SUCCESS + " Finished " + describe());
+            } else {
+                next(guild);
+            }
+        }
+
+        private void advance(long memberId, boolean wasChanged) {
+            cursor = memberId;
+            processed++;
+            if (wasChanged) {
+                changed++;
+            }
+        }
+
+        private void next(Guild guild) {
+            long now = System.currentTimeMillis();
+            if (now - lastStatus >= statusInterval) {
+                lastStatus = now;
+                save();
+                editStatus(guild, Constants.LOADING + " " + FormatUtil.capitalize(describe()));
+            }
+
+            vortex.getThreadpool().execute(this::step);
+        }
+
+        private void finish(Guild guild, String status) {
+            running.remove(guildId);
+            vortex.getDatabase().memberJobs.removeJob(guildId);
+            editStatus(guild, status);
+        }
+
+        private void save() {
+            vortex.getDatabase().memberJobs.saveJob(new SavedJob(guildId, type.name(), argument, channelId, messageId, cursor, processed, changed));
+        }
+
+        private void editStatus(Guild guild, String status) {
+            GuildMessageChannel channel = guild.getChannelById(GuildMessageChannel.class, channelId);
+            if (channel != null) {
+                channel.editMessageById(messageId, status).queue(s -> {}, f -> {});
+            }
+        }
+
+        private String describe() {
+            return type.getVerb() + " " + type.describe(argument) + ": `" + processed + "`/`" + total + "` members checked, `" + changed + "` changed.";
+        }
+    }
+
+    public enum Type {
+        DEHOIST("dehoisting") {
+            @Override
+            public RestAction<?> apply(Member member, String argument) {
+                String name = OtherUtil.dehoistedName(member, argument.charAt(0));
+                return name == null ? null : member.getGuild().modifyNickname(member, name).reason("Dehoisting");
+            }
+
+            @Override
+            public String describe(String argument) {
+                return "members with names starting with `" + argument + "` or higher";
+            }
+        };
+
+        private final String verb;
+
+        Type(String verb) {
+            this.verb = verb;
+        }
+
+        public String getVerb() {
+            return verb;
+        }
+
+        /**
+         * Works out what to do with a member
+         * @param member The member
+         * @param argument What the job was started with
+         * @return The request to make for the member, or null if the member doesn't need to be changed
+         */
+        public abstract RestAction<?> apply(Member member, String argument);
+
+        /**
+         * @param argument What the job was started with
+         * @return What the job goes through, such as "members with names starting with `!` or higher"
+         */
+        public abstract String describe(String argument);
+    }
+}
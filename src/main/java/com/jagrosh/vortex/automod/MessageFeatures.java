@@ -0,0 +1,327 @@
+package com.jagrosh.vortex.automod;
+
+import com.jagrosh.vortex.utils.DomainIndex;
+import lombok.Getter;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the automod checks need to know about the content of a message, worked out in a single pass over the
+ * content. The scanner finds exactly what the regexes the checks used to run would find:
+ * <ul>
+ *     <li>Links are matches of {@code https?://\S+}</li>
+ *     <li>Invite codes are the first group of matches of
+ *     {@code discord\s?(?:(?:\.|dot|\(\.\)|\(dot\))\s?gg|(?:app)?\s?\.\s?com\s?/\s?invite)\s?/\s?([A-Z0-9-]{2,18})}</li>
+ *     <li>Referral links are links matching {@code https?://\S+(?:/ref/|[?&#]ref(?:errer|erral)?=)\S+}</li>
+ *     <li>The line count is the length of {@code content.split("\n")}</li>
+ * </ul>
+ * All of which are case-insensitive.
+ */
+public class MessageFeatures {
+    private static final int MIN_CODE_LENGTH = 2;
+    private static final int MAX_CODE_LENGTH = 18;
+    private static final String[] DOTS = {".", "dot", "(.)", "(dot)"};
+
+    private final @Getter String content;
+    private final @Getter List<String> attachments;
+    private final @Getter int lineCount;
+    private final @Getter List<Link> links;
+    private final @Getter List<String> hosts;
+    private final @Getter List<String> inviteCodes;
+    private final @Getter int userMentions;
+    private final @Getter int roleMentions;
+
+    /**
+     * Works out the features of some content
+     * @param content The raw content of a message
+     * @param attachments The file names of the attachments of the message
+     * @param userMentions The amount of distinct users that were mentioned
+     * @param roleMentions The amount of distinct roles that were mentioned
+     */
+    public MessageFeatures(String content, List<String> attachments, int userMentions, int roleMentions) {
+        this.content = content;
+        this.attachments = attachments;
+        this.userMentions = userMentions;
+        this.roleMentions = roleMentions;
+
+        List<Link> links = new ArrayList<>(0);
+        List<String> hosts = new ArrayList<>(0);
+        List<String> inviteCodes = new ArrayList<>(0);
+        int newlines = 0;
+        int trailingNewlines = 0;
+        int length = content.length();
+        int inviteEnd = 0;
+        int linkEnd = 0;
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c == '\n') {
+                newlines++;
+                trailingNewlines++;
+                continue;
+            }
+
+            trailingNewlines = 0;
+            if ((c | 0x20) == 'h') {
+                int start = schemeEnd(i);
+                if (start != -1 && start < length && !isWhitespace(content.charAt(start))) {
+                    int end = start;
+                    while (end < length && !isWhitespace(content.charAt(end))) {
+                        end++;
+                    }
+
+                    String url = content.substring(i, end);
+                    String host = DomainIndex.hostOf(url);
+                    hosts.add(host);
+                    if (i >= linkEnd) {
+                        links.add(new Link(url.endsWith(">") ? url.substring(0, url.length() - 1) : url, host, isReferral(start, end)));
+                        linkEnd = end;
+                    }
+                }
+            } else if ((c | 0x20) == 'd' && i >= inviteEnd) {
+                long code = matchInvite(i);
+                if (code != -1) {
+                    int codeStart = (int) (code >>> 32);
+                    inviteEnd = (int) code;
+                    inviteCodes.add(content.substring(codeStart, inviteEnd));
+                }
+            }
+        }
+
+        this.links = Collections.unmodifiableList(links);
+        this.hosts = Collections.unmodifiableList(hosts);
+        this.inviteCodes = Collections.unmodifiableList(inviteCodes);
+        if (newlines == 0) {
+            this.lineCount = 1;
+        } else {
+            // split drops every trailing empty line, including the first one if the content is only newlines
+            this.lineCount = newlines + 1 - trailingNewlines - (trailingNewlines == length ? 1 : 0);
+        }
+    }
+
+    /**
+     * Works out the features of a message
+     * @param message The message
+     * @return The features of the message
+     */
+    public static MessageFeatures of(Message message) {
+        int userMentions = 0;
+        for (User user : message.getMentions().getUsers()) {
+            if (!user.isBot() && !user.equals(message.getAuthor())) {
+                userMentions++;
+            }
+        }
+
+        List<String> attachments = new ArrayList<>(message.getAttachments().size());
+        for (Message.Attachment attachment : message.getAttachments()) {
+            attachments.add(attachment.getFileName());
+        }
+
+        return new MessageFeatures(message.getContentRaw(), attachments, userMentions, message.getMentions().getRoles().size());
+    }
+
+    /**
+     * @return True if any of the links looks like a referral link
+     */
+    public boolean hasReferralLink() {
+        for (Link link : links) {
+            if (link.referral()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks for {@code https?://} at an index
+     * @return The index right after the scheme, or -1 if there is no scheme at the index
+     */
+    private int schemeEnd(int index) {
+        if (!matchesIgnoreCase(index, "http")) {
+            return -1;
+        }
+
+        index += 4;
+        if (index < content.length() && (content.charAt(index) | 0x20) == 's') {
+            index++;
+        }
+
+        return matchesIgnoreCase(index, "://") ? index + 3 : -1;
+    }
+
+    /**
+     * Checks for {@code (?:/ref/|[?&#]ref(?:errer|erral)?=)} somewhere in a link, after its first character and with at
+     * least one character following it
+     */
+    private boolean isReferral(int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            char c = content.charAt(i);
+            int markerEnd = -1;
+            if (c == '/' && matchesIgnoreCase(i + 1, "ref/")) {
+                markerEnd = i + 5;
+            } else if ((c == '?' || c == '&' || c == '#') && matchesIgnoreCase(i + 1, "ref")) {
+                int after = i + 4;
+                if ((matchesIgnoreCase(after, "errer") || matchesIgnoreCase(after, "erral")) && matchesIgnoreCase(after + 5, "=")) {
+                    markerEnd = after + 6;
+                } else if (matchesIgnoreCase(after, "=")) {
+                    markerEnd = after + 1;
+                }
+            }
+
+            if (markerEnd != -1 && markerEnd < end) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Matches an invite starting at an index, trying the same alternatives in the same order as the invite regex
+     * @return The start of the invite code in the upper 32 bits and the end in the lower 32 bits, or -1 if there is no
+     * invite at the index
+     */
+    private long matchInvite(int index) {
+        if (!matchesIgnoreCase(index, "discord")) {
+            return -1;
+        }
+
+        int afterDiscord = index + 7;
+        for (int a = optionalWhitespace(afterDiscord); a >= afterDiscord; a--) {
+            // (?:\.|dot|\(\.\)|\(dot\))\s?gg
+            for (String dot : DOTS) {
+                if (!matchesIgnoreCase(a, dot)) {
+                    continue;
+                }
+
+                int afterDot = a + dot.length();
+                for (int b = optionalWhitespace(afterDot); b >= afterDot; b--) {
+                    if (matchesIgnoreCase(b, "gg")) {
+                        long code = matchCode(b + 2);
+                        if (code != -1) {
+                            return code;
+                        }
+                    }
+                }
+            }
+
+            // (?:app)?\s?\.\s?com\s?/\s?invite
+            if (matchesIgnoreCase(a, "app")) {
+                long code = matchComInvite(a + 3);
+                if (code != -1) {
+                    return code;
+                }
+            }
+
+            long code = matchComInvite(a);
+            if (code != -1) {
+                return code;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Matches {@code \s?\.\s?com\s?/\s?invite}, followed by a code, at an index
+     */
+    private long matchComInvite(int index) {
+        for (int a = optionalWhitespace(index); a >= index; a--) {
+            if (!matchesIgnoreCase(a, ".")) {
+                continue;
+            }
+
+            for (int b = optionalWhitespace(a + 1); b >= a + 1; b--) {
+                if (!matchesIgnoreCase(b, "com")) {
+                    continue;
+                }
+
+                for (int c = optionalWhitespace(b + 3); c >= b + 3; c--) {
+                    if (!matchesIgnoreCase(c, "/")) {
+                        continue;
+                    }
+
+                    for (int d = optionalWhitespace(c + 1); d >= c + 1; d--) {
+                        if (matchesIgnoreCase(d, "invite")) {
+                            long code = matchCode(d + 6);
+                            if (code != -1) {
+                                return code;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Matches {@code \s?/\s?([A-Z0-9-]{2,18})} at an index
+     */
+    private long matchCode(int index) {
+        for (int a = optionalWhitespace(index); a >= index; a--) {
+            if (!matchesIgnoreCase(a, "/")) {
+                continue;
+            }
+
+            for (int b = optionalWhitespace(a + 1); b >= a + 1; b--) {
+                int end = b;
+                while (end < content.length() && end - b < MAX_CODE_LENGTH && isCodeChar(content.charAt(end))) {
+                    end++;
+                }
+
+                if (end - b >= MIN_CODE_LENGTH) {
+                    return ((long) b << 32) | end;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * {@code \s?} can end at this index or the one before it, which a greedy regex tries in that order, so callers
+     * loop down from it to the index they passed
+     * @return The index after the whitespace at an index, or the index itself if there is no whitespace
+     */
+    private int optionalWhitespace(int index) {
+        return index < content.length() && isWhitespace(content.charAt(index)) ? index + 1 : index;
+    }
+
+    private boolean matchesIgnoreCase(int index, String lowercase) {
+        if (index + lowercase.length() > content.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < lowercase.length(); i++) {
+            char c = content.charAt(index + i);
+            char expected = lowercase.charAt(i);
+            if (c != expected && !(c >= 'A' && c <= 'Z' && (char) (c | 0x20) == expected)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isCodeChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /**
+     * A link found in a message
+     * @param url The link, without a trailing {@code >}
+     * @param host The lowercase host of the link
+     * @param referral True if the link has a referral path or parameter
+     */
+    public record Link(String url, String host, boolean referral) {}
+}
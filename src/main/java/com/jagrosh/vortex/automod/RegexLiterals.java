@@ -0,0 +1,278 @@
+package com.jagrosh.vortex.automod;
+
+/**
+ * Pulls literal text out of regular expressions so that a cheap substring scan can rule out messages before the regex
+ * engine ever runs. The analysis is deliberately conservative: whenever the pattern contains something it doesn't
+ * fully understand (top level alternations, quoting, comment mode, ...) no literal is reported, and the regex simply
+ * always runs.
+ */
+class RegexLiterals {
+    private RegexLiterals() {}
+
+    /**
+     * Finds the longest run of literal characters that every match of the pattern must contain. The returned literal
+     * is lowercase, and is meant to be searched for in lowercased text matched with {@link java.util.regex.Pattern#CASE_INSENSITIVE}.
+     * Only ASCII characters are ever included, since the regex engine folds only ASCII case by default.
+     *
+     * @param regex A pattern that is known to compile
+     * @return The longest required literal, or null if none could be found
+     */
+    static String requiredLiteral(String regex) {
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        int n = regex.length();
+        while (i < n) {
+            char c = regex.charAt(i);
+            int end;
+            char literal = 0;
+            boolean isLiteral = false;
+
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 >= n) {
+                        return null;
+                    }
+
+                    char d = regex.charAt(i + 1);
+                    if (d == 'Q' || d == 'E') {
+                        return null;
+                    } else if (Character.isLetterOrDigit(d)) {
+                        end = skipEscape(regex, i);
+                        if (end == -1) {
+                            return null;
+                        }
+                    } else {
+                        end = i + 2;
+                        literal = d;
+                        isLiteral = d < 128;
+                    }
+                }
+                case '[' -> {
+                    end = skipClass(regex, i);
+                    if (end == -1) {
+                        return null;
+                    }
+                }
+                case '(' -> {
+                    if (i + 2 < n && regex.charAt(i + 1) == '?' && usesCommentsFlag(regex, i + 2)) {
+                        return null;
+                    }
+
+                    end = skipGroup(regex, i);
+                    if (end == -1) {
+                        return null;
+                    }
+                }
+                case '.', '^', '$' -> end = i + 1;
+                case '|', ')', '*', '+', '?', '{' -> {
+                    // top level alternations have no single required literal, and the rest can't start an atom
+                    return null;
+                }
+                default -> {
+                    end = i + 1;
+                    literal = c;
+                    isLiteral = c < 128;
+                }
+            }
+
+            // check if the atom is quantified
+            boolean optional = false;
+            boolean repeated = false;
+            if (end < n) {
+                switch (regex.charAt(end)) {
+                    case '?', '*' -> {
+                        optional = true;
+                        end++;
+                    }
+                    case '+' -> {
+                        repeated = true;
+                        end++;
+                    }
+                    case '{' -> {
+                        int close = regex.indexOf('}', end);
+                        if (close == -1) {
+                            return null;
+                        }
+
+                        String min = regex.substring(end + 1, close).split(",", 2)[0].trim();
+                        if (min.isEmpty() || !min.chars().allMatch(Character::isDigit)) {
+                            return null;
+                        }
+
+                        optional = Integer.parseInt(min) == 0;
+                        repeated = !optional;
+                        end = close + 1;
+                    }
+                    default -> {}
+                }
+
+                // lazy and possessive modifiers
+                if ((optional || repeated) && end < n && (regex.charAt(end) == '?' || regex.charAt(end) == '+')) {
+                    end++;
+                }
+            }
+
+            if (isLiteral && !optional) {
+                run.append(Character.toLowerCase(literal));
+            }
+
+            if (!isLiteral || optional || repeated) {
+                if (run.length() > best.length()) {
+                    best = run.toString();
+                }
+
+                run.setLength(0);
+            }
+
+            i = end;
+        }
+
+        if (run.length() > best.length()) {
+            best = run.toString();
+        }
+
+        return best.isEmpty() ? null : best;
+    }
+
+    // Returns the index after an escape sequence that starts with a letter or digit, eg. \d, \x41, \p{Lu} or \k<name>
+    private static int skipEscape(String regex, int start) {
+        int i = start + 2;
+        int n = regex.length();
+        switch (regex.charAt(start + 1)) {
+            case 'x' -> {
+                if (i < n && regex.charAt(i) == '{') {
+                    int close = regex.indexOf('}', i);
+                    return close == -1 ? -1 : close + 1;
+                }
+
+                return Math.min(i + 2, n);
+            }
+            case 'u' -> {
+                return Math.min(i + 4, n);
+            }
+            case 'c' -> {
+                return Math.min(i + 1, n);
+            }
+            case '0' -> {
+                int max = Math.min(i + 3, n);
+                while (i < max && regex.charAt(i) >= '0' && regex.charAt(i) <= '7') {
+                    i++;
+                }
+
+                return i;
+            }
+            case 'p', 'P', 'N' -> {
+                if (i < n && regex.charAt(i) == '{') {
+                    int close = regex.indexOf('}', i);
+                    return close == -1 ? -1 : close + 1;
+                }
+
+                return Math.min(i + 1, n);
+            }
+            case 'k' -> {
+                int close = regex.indexOf('>', i);
+                return close == -1 ? -1 : close + 1;
+            }
+            case '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+                while (i < n && Character.isDigit(regex.charAt(i))) {
+                    i++;
+                }
+
+                return i;
+            }
+            default -> {
+                return i;
+            }
+        }
+    }
+
+    // Returns the index after a character class, accounting for escapes and nested classes
+    private static int skipClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        int n = regex.length();
+        while (i < n) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+
+            if (c == '[') {
+                depth++;
+                i++;
+
+                // a closing bracket right at the start of a class is literal
+                if (i < n && regex.charAt(i) == '^') {
+                    i++;
+                }
+
+                if (i < n && regex.charAt(i) == ']') {
+                    i++;
+                }
+
+                continue;
+            }
+
+            if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    // Returns the index after a group, accounting for escapes, character classes and nested groups
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        int n = regex.length();
+        while (i < n) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+                if (i == -1) {
+                    return -1;
+                }
+            } else if (c == '(') {
+                if (i + 2 < n && regex.charAt(i + 1) == '?' && usesCommentsFlag(regex, i + 2)) {
+                    return -1;
+                }
+
+                depth++;
+                i++;
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+
+                i++;
+            } else {
+                i++;
+            }
+        }
+
+        return -1;
+    }
+
+    // Checks if inline flags, such as (?x) or (?ix:...), turn on comment mode, which changes what is literal
+    private static boolean usesCommentsFlag(String regex, int flagsStart) {
+        for (int i = flagsStart; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == 'x') {
+                return true;
+            }
+
+            if (!Character.isLetter(c) && c != '-') {
+                return false;
+            }
+        }
+
+        return false;
+    }
+}
@@ -15,71 +15,152 @@
  */
 package com.jagrosh.vortex.automod;
 
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.DomainIndex;
+import com.jagrosh.vortex.utils.BoundedCache;
 import com.jagrosh.vortex.utils.OtherUtil;
 import com.typesafe.config.Config;
 import okhttp3.FormBody;
+import okhttp3.Headers;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.Response;
 
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public interface URLResolver {
-    List<String> findRedirects(String url);
+    /**
+     * Finds where a link redirects to
+     * @param url The link
+     * @return A future that completes with every url the link redirects through, which is empty if it couldn't be resolved
+     */
+    CompletableFuture<List<String>> findRedirectsAsync(String url);
+
+    default List<String> findRedirects(String url) {
+        return findRedirectsAsync(url).join();
+    }
 
     void loadSafeDomains();
 
     class DummyURLResolver implements URLResolver {
         @Override
-        public List<String> findRedirects(String url) {
-            return Collections.EMPTY_LIST;
+        public CompletableFuture<List<String>> findRedirectsAsync(String url) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
 
         @Override
         public void loadSafeDomains() {}
     }
 
+    /**
+     * Resolves links through an external service. Up to {@code url-resolver.max-concurrent} links are resolved at once,
+     * with up to {@code url-resolver.queue-size} more waiting their turn. Links that are already being resolved share the
+     * same lookup.
+     */
     class ActiveURLResolver implements URLResolver {
-        private final String prefix, suffix, form;
-        private final OkHttpClient client = new OkHttpClient.Builder().build();
-        private final Request.Builder request;
+        private final String prefix, suffix, form, url;
+        private final Headers headers;
+        private final OkHttpClient client;
+        private final ThreadPoolExecutor executor;
 
-        private final FixedCache<String, List<String>> cache = new FixedCache<>(1000);
+        private final BoundedCache<String, List<String>> cache = BoundedCache.<String, List<String>>builder("url-redirects").maximumSize(1000).build();
+        private final ConcurrentHashMap<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+        private final LongAdder rejected = new LongAdder();
 
         public ActiveURLResolver(Config config) {
             prefix = config.getString("url-resolver.prefix");
             suffix = config.getString("url-resolver.suffix");
             form = config.getString("url-resolver.form");
-            request = new Request.Builder().url(config.getString("url-resolver.url"));
-            config.getConfig("url-resolver.headers").entrySet().forEach(entry -> request.addHeader(entry.getKey(), (String) entry.getValue().unwrapped()));
+            url = config.getString("url-resolver.url");
+            Headers.Builder headers = new Headers.Builder();
+            config.getConfig("url-resolver.headers").entrySet().forEach(entry -> headers.add(entry.getKey(), (String) entry.getValue().unwrapped()));
+            this.headers = headers.build();
+            client = new OkHttpClient.Builder()
+                    .connectTimeout(config.getDuration("url-resolver.connect-timeout", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS)
+                    .readTimeout(config.getDuration("url-resolver.read-timeout", TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS)
+                    .build();
+
+            int maxConcurrent = config.getInt("url-resolver.max-concurrent");
+            executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getInt("url-resolver.queue-size")), r -> {
+                Thread thread = new Thread(r, "url-resolver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
         }
 
         @Override
-        public synchronized List<String> findRedirects(String url) {
+        public CompletableFuture<List<String>> findRedirectsAsync(String url) {
             if (isSafeDomain(url)) {
-                return Collections.EMPTY_LIST;
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            }
+
+            List<String> cached = cache.get(url);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
             }
 
-            if (cache.contains(url)) {
-                return cache.get(url);
+            CompletableFuture<List<String>> future = new CompletableFuture<>();
+            CompletableFuture<List<String>> existing = inFlight.putIfAbsent(url, future);
+            if (existing != null) {
+                return existing;
             }
 
             try {
-                String resp = client.newCall(request.post(new FormBody.Builder().add(form, url).add("f", "true").build()).build()).execute().body().string();
-                List<String> resolved = resolve(resp);
+                executor.execute(() -> {
+                    List<String> resolved = lookup(url);
+                    inFlight.remove(url);
+                    future.complete(resolved);
+                });
+            } catch (RejectedExecutionException ex) {
+                rejected.increment();
+                inFlight.remove(url);
+                future.complete(Collections.emptyList());
+            }
+
+            return future;
+        }
+
+        private List<String> lookup(String url) {
+            Request request = new Request.Builder().url(this.url).headers(headers).post(new FormBody.Builder().add(form, url).add("f", "true").build()).build();
+            try (Response response = client.newCall(request).execute()) {
+                List<String> resolved = resolve(response.body().string());
                 cache.put(url, resolved);
+
                 System.out.println("Link Resolving: " + url + " -> " + resolved);
                 return resolved;
             } catch (Exception ex) {
-                return Collections.EMPTY_LIST;
+                return Collections.emptyList();
             }
         }
 
+        /**
+         * @return The amount of links waiting to be resolved
+         */
+        public int getQueued() {
+            return executor.getQueue().size();
+        }
+
+        /**
+         * @return The amount of links currently being resolved
+         */
+        public int getActive() {
+            return executor.getActiveCount();
+        }
+
+        /**
+         * @return The amount of links that weren't resolved because the queue was full
+         */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
         private List<String> resolve(String text) {
             List<String> list = new LinkedList<>();
             for (int i = 0; i < text.length(); ) {
@@ -100,31 +181,15 @@ public interface URLResolver {
         }
 
         // These are domains frequently sent via Discord that do not redirect to external sites
-        private String[] safeDomains = OtherUtil.readLines("safe_domains");
+        private volatile DomainIndex safeDomains = new DomainIndex(OtherUtil.readLines("safe_domains"));
 
         private boolean isSafeDomain(String url) {
-            // first, find the root domain
-            String root = url.substring(url.indexOf("://") + 3);
-            int index = root.indexOf("/");
-            if (index != -1) {
-                root = root.substring(0, index);
-            }
-
-            index = root.lastIndexOf(".");
-            index = root.lastIndexOf(".", index - 1);
-            root = root.substring(index + 1).toLowerCase();
-            for (String str : safeDomains) {
-                if (str.equals(root)) {
-                    return true;
-                }
-            }
-
-            return false;
+            return safeDomains.matches(DomainIndex.hostOf(url));
         }
 
         @Override
         public void loadSafeDomains() {
-            this.safeDomains = OtherUtil.readLines("safe_domains");
+            this.safeDomains = new DomainIndex(OtherUtil.readLines("safe_domains"));
         }
     }
 }
\ No newline at end of file
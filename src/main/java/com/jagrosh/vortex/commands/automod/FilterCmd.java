@@ -149,9 +149,23 @@ public class FilterCmd extends Command {
             Filter veryBadWordsFilter = filters.getVeryBadWordsFilter(guildId);
 
             String embedContent = String.format("**Bad Words:** %s%n**Very Bad Words:**%s", badWordsFilter == null ? "_None_" : badWordsFilter.printContentEscaped(), veryBadWordsFilter == null ? "_None_" : veryBadWordsFilter.printContentEscaped()).trim();
+            embedContent += printOverruns(badWordsFilter) + printOverruns(veryBadWordsFilter);
 
             event.reply(new EmbedBuilder().setColor(event.getSelfMember().getColor()).addField(new Field("\uD83D\uDEAF Filters", embedContent, true)).build());
             // Todo: add page turning if the embeds are too big
         }
+
+        private String printOverruns(Filter filter) {
+            if (filter == null || filter.getBudgetOverruns() == 0) {
+                return "";
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (Filter.Regex regex : filter.getDisabledRegexes()) {
+                sb.append("\n").append(Constants.WARNING).append(" `").append(regex.pattern.pattern().replace("`", "\\`")).append("` was disabled for being too slow");
+            }
+
+            return sb.isEmpty() ? "\n" + Constants.WARNING + " Regexes in this filter have run out of time " + filter.getBudgetOverruns() + " times" : sb.toString();
+        }
     }
 }
@@ -68,6 +68,7 @@ public class IgnoreCmd extends Command {
 
         if (tc != null) {
             vortex.getDatabase().ignores.ignore(tc);
+            vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
             event.replySuccess("Automod is now ignoring channel <#" + tc.getId() + ">");
             return;
         }
@@ -77,6 +78,7 @@ public class IgnoreCmd extends Command {
             event.replyError(FormatUtil.filterEveryone("No roles or text channels found for `" + event.getArgs() + "`"));
         } else if (roles.size() == 1) {
             vortex.getDatabase().ignores.ignore(roles.get(0));
+            vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
             event.replySuccess(FormatUtil.filterEveryone("Automod is now ignoring role `" + roles.get(0).getName() + "`"));
         } else {
             event.replyWarning(FormatUtil.filterEveryone(FormatUtil.listOfRoles(roles, event.getArgs())));
@@ -60,7 +60,9 @@ public class UnignoreCmd extends Command {
         }
 
         if (tc != null) {
-            if (vortex.getDatabase().ignores.unignore(tc)) {
+            boolean unignored = vortex.getDatabase().ignores.unignore(tc);
+            vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            if (unignored) {
                 event.replySuccess("Automod is no longer ignoring channel <#" + tc.getId() + ">");
             } else {
                 event.replyError("Automod was not already ignoring <#" + tc.getId() + ">!");
@@ -73,7 +75,9 @@ public class UnignoreCmd extends Command {
         if (roles.isEmpty()) {
             event.replyError(FormatUtil.filterEveryone("No roles or text channels found for `" + event.getArgs() + "`"));
         } else if (roles.size() == 1) {
-            if (vortex.getDatabase().ignores.unignore(roles.get(0))) {
+            boolean unignored = vortex.getDatabase().ignores.unignore(roles.get(0));
+            vortex.getAutoMod().getExemptions().invalidate(event.getGuild().getIdLong());
+            if (unignored) {
                 event.replySuccess("Automod is no longer ignoring role `" + roles.get(0).getName() + "`");
             } else {
                 event.replyError(FormatUtil.filterEveryone("Automod was not ignoring role `" + roles.get(0).getName() + "`" + "\n" + event.getClient().getWarning() + " If this role is still listed when using `" + event.getClient().getPrefix() + "ignore`:" + "\n`[can't interact]` - the role is above " + event.getSelfUser().getName() + "'s highest role; try moving the '" + event.getSelfUser().getName() + "' role higher" + "\n`[elevated perms]` - the role has one of the following permissions: Kick Members, Ban Members, Manage Server, Manage Messages, Administrator"));
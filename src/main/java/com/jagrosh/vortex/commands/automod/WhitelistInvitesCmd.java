@@ -19,6 +19,7 @@ import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.vortex.Vortex;
 import com.jagrosh.vortex.utils.FormatUtil;
+import com.jagrosh.vortex.utils.LongSet;
 import net.dv8tion.jda.api.Permission;
 
 import java.util.ArrayList;
@@ -67,8 +68,8 @@ public class WhitelistInvitesCmd extends Command {
             return;
         }
 
-        List<Long> currentWL = vortex.getDatabase().inviteWhitelist.readWhitelist(event.getGuild());
-        event.replySuccess(FormatUtil.filterEveryone("Whitelisted Guild IDs:\n" + (currentWL.isEmpty() ? "None" : "`" + currentWL.stream().map(String::valueOf).collect(Collectors.joining("`, `")) + "`")));
+        LongSet currentWL = vortex.getDatabase().inviteWhitelist.readWhitelist(event.getGuild());
+        event.replySuccess(FormatUtil.filterEveryone("Whitelisted Guild IDs:\n" + (currentWL.isEmpty() ? "None" : "`" + currentWL.stream().mapToObj(String::valueOf).collect(Collectors.joining("`, `")) + "`")));
     }
 
     private void handleAdd(CommandEvent event, String[] args) {
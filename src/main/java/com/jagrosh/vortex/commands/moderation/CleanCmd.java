@@ -19,6 +19,8 @@ import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.command.SlashCommandEvent;
 import com.jagrosh.vortex.Vortex;
 import com.jagrosh.vortex.commands.CommandExceptionListener.CommandWarningException;
+import com.jagrosh.vortex.utils.BoundedRegex;
+import com.jagrosh.vortex.utils.BoundedRegex.BudgetExceededException;
 import com.jagrosh.vortex.utils.LogUtil;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.EmbedType;
@@ -31,6 +33,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * @author John Grosh (jagrosh)
@@ -43,6 +46,8 @@ public class CleanCmd extends ModCommand {
     private final Pattern ID_PATTERN = Pattern.compile("\\b(\\d{17,22})\\b");
     private final Pattern NUM_PATTERN = Pattern.compile("\\b(\\d{1,4})\\b");
     private final String week2limit = " Note: Messages older than 2 weeks cannot be cleaned.";
+    private final String slowRegex = " Note: The provided regex was too slow, and was skipped for some messages.";
+    private final static int MAX_REGEX_OVERRUNS = 3;
     private final String noparams = "**No valid cleaning parameters included!**\n" + "This command is to remove many messages quickly. Pinned messages are ignored. " + "Messages can be filtered with various parameters. Mutliple arguments can be used and " + "the order of parameters does not matter. The following parameters are supported:\n" + " `<numPosts>` - number of posts to delete; between 2 and 1000. This is the only required parameter\n" + " `bots` - cleans messages by bots\n" + " `embeds` - cleans messages with embeds\n" + " `links` - cleans messages containing links\n" + " `images` - cleans messages with uploaded or embeded images or videos\n" + " `mentions` - cleans messages that mentions someone" + " `@user` - cleans messages only from the provided user\n" + " `userId` - cleans messages only from the provided user (via id)\n" + " `\"quotes\"` - cleans messages containing the text in quotes\n" + " `` `regex` `` - cleans messages that match the regex";
 
     public CleanCmd(Vortex vortex) {
@@ -131,8 +136,16 @@ public class CleanCmd extends ModCommand {
             return;
         }
 
+        Pattern compiledPattern;
+        try {
+            compiledPattern = pattern == null ? null : Pattern.compile(pattern);
+        } catch (PatternSyntaxException ex) {
+            compiledPattern = null;
+        }
+
         int val2 = num + 1;
         String p = pattern;
+        Pattern cp = compiledPattern;
         event.async(() -> {
             int val = val2;
             List<Message> msgs = new LinkedList<>();
@@ -153,6 +166,7 @@ public class CleanCmd extends ModCommand {
 
             msgs.remove(event.getMessage());
             boolean week2 = false;
+            int regexOverruns = 0;
             List<Message> del = new LinkedList<>();
             for (Message msg : msgs) {
                 if (msg.getTimeCreated().isBefore(earliest)) {
@@ -176,15 +190,17 @@ public class CleanCmd extends ModCommand {
                 }
 
                 try {
-                    if (p != null && msg.getContentRaw().matches(p)) {
+                    if (cp != null && regexOverruns < MAX_REGEX_OVERRUNS && BoundedRegex.matches(cp, msg.getContentRaw())) {
                         del.add(msg);
                     }
-                } catch (Exception ignore) {
+                } catch (BudgetExceededException ex) {
+                    regexOverruns++;
                 }
             }
 
+            String notes = (week2 ? week2limit : "") + (regexOverruns > 0 ? slowRegex : "");
             if (del.isEmpty()) {
-                event.replyWarning("There were no messages to clean!" + (week2 ? week2limit : ""));
+                event.replyWarning("There were no messages to clean!" + notes);
                 event.getClient().applyCooldown(getCooldownKey(event), 1);
                 return;
             }
@@ -210,7 +226,7 @@ public class CleanCmd extends ModCommand {
                 return;
             }
 
-            event.replySuccess("Cleaned **" + del.size() + "** messages." + (week2 ? week2limit : ""));
+            event.replySuccess("Cleaned **" + del.size() + "** messages." + notes);
             event.getClient().applyCooldown(getCooldownKey(event), 1);
             if (vortex.getDatabase().settings.getSettings(event.getGuild()).getModLogChannel(event.getGuild()) == null) {
                 return;
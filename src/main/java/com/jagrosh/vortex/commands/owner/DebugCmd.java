@@ -19,6 +19,11 @@ import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.vortex.Constants;
 import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.DeletionCoalescer;
+import com.jagrosh.vortex.automod.InviteResolver;
+import com.jagrosh.vortex.automod.URLResolver.ActiveURLResolver;
+import com.jagrosh.vortex.utils.BoundedCache;
+import com.jagrosh.vortex.utils.LaneExecutor;
 import net.dv8tion.jda.api.utils.TimeFormat;
 
 /**
@@ -31,6 +36,7 @@ public class DebugCmd extends Command {
         this.vortex = vortex;
         this.name = "debug";
         this.help = "shows some debug stats";
+        this.arguments = "[automod | caches]";
         this.ownerCommand = true;
         this.guildOnly = false;
         this.hidden = true;
@@ -38,9 +44,31 @@ public class DebugCmd extends Command {
 
     @Override
     protected void execute(CommandEvent event) {
+        if (event.getArgs().equalsIgnoreCase("automod")) {
+            LaneExecutor lanes = vortex.getAutoMod().getLanes();
+            DeletionCoalescer deletions = vortex.getAutoMod().getDeletions();
+            InviteResolver invites = vortex.getAutoMod().getInviteResolver();
+            event.reply("Automod check statistics:\n" + vortex.getAutoMod().getPipeline().printStats()
+                    + "\nLanes: **" + lanes.getLaneCount() + "**, Queued: **" + lanes.getQueued() + "**, Checked: **" + lanes.getExecuted() + "**, Dropped: **" + lanes.getShed() + "**"
+                    + "\nDeletions: **" + deletions.getRequested() + "**, Pending: **" + deletions.getPending() + "**, REST Calls: **" + deletions.getRestCalls() + "**, Saved: **" + deletions.getSaved() + "**, Dropped: **" + deletions.getDropped() + "**"
+                    + "\nInvite Resolver Queued: **" + invites.getQueued() + "**, Rejected: **" + invites.getRejected() + "**"
+                    + (vortex.getAutoMod().getUrlResolver() instanceof ActiveURLResolver resolver ? "\nURL Resolver Active: **" + resolver.getActive() + "**, Queued: **" + resolver.getQueued() + "**, Rejected: **" + resolver.getRejected() + "**" : ""));
+            return;
+        }
+
+        if (event.getArgs().equalsIgnoreCase("caches")) {
+            StringBuilder sb = new StringBuilder("Cache statistics:");
+            for (BoundedCache<?, ?> cache : BoundedCache.getRegistered()) {
+                sb.append(String.format("%n`%s`: **%d**/**%d**, Hit Rate: **%.1f%%**, Hits: **%d**, Misses: **%d**, Evictions: **%d**, Expirations: **%d**", cache.getName(), cache.weight(), cache.getMaximumWeight(), cache.getHitRate() * 100, cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getExpirations()));
+            }
+
+            event.reply(sb.toString());
+            return;
+        }
+
         long totalMb = Runtime.getRuntime().totalMemory() / (1024 * 1024);
         long usedMb = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024);
-        String sb = "**" + event.getSelfUser().getName() + "** statistics:" + "\nLast Startup: " + TimeFormat.RELATIVE.format(Constants.STARTUP) + "\nGuilds: **" + vortex.getJda().getGuildCache().size() + "**" + "\nMemory: **" + usedMb + "**Mb / **" + totalMb + "**Mb" + "\nGateway Ping: **" + vortex.getJda().getGatewayPing() + "**ms" + "\nShard Connectivity: ```diff" + "\n```";
+        String sb = "**" + event.getSelfUser().getName() + "** statistics:" + "\nLast Startup: " + TimeFormat.RELATIVE.format(Constants.STARTUP) + "\nGuilds: **" + vortex.getJda().getGuildCache().size() + "**" + "\nMemory: **" + usedMb + "**Mb / **" + totalMb + "**Mb" + "\nMessage Cache: **" + vortex.getMessageCache().getSize() + "** messages, **" + vortex.getMessageCache().getBytes() / (1024 * 1024) + "**Mb / **" + vortex.getMessageCache().getBudget() / (1024 * 1024) + "**Mb, Evicted: **" + vortex.getMessageCache().getEvicted() + "**" + (vortex.getMessageCache().getLoggedSize() < 0 ? "" : ", On Disk: **" + vortex.getMessageCache().getLoggedSize() + "**, Dropped Writes: **" + vortex.getMessageCache().getLogDropped() + "**") + "\nGateway Ping: **" + vortex.getJda().getGatewayPing() + "**ms" + "\nShard Connectivity: ```diff" + "\n```";
         event.reply(sb.trim());
     }
 }
@@ -17,6 +17,9 @@ package com.jagrosh.vortex.commands.tools;
 
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.vortex.Constants;
+import com.jagrosh.vortex.Vortex;
+import com.jagrosh.vortex.automod.MemberJobs;
 import com.jagrosh.vortex.commands.CommandExceptionListener.CommandErrorException;
 import com.jagrosh.vortex.utils.OtherUtil;
 import net.dv8tion.jda.api.Permission;
@@ -25,9 +28,12 @@ import net.dv8tion.jda.api.Permission;
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class DehoistCmd extends Command {
-    public DehoistCmd() {
+    private final Vortex vortex;
+
+    public DehoistCmd(Vortex vortex) {
+        this.vortex = vortex;
         this.name = "dehoist";
-        this.arguments = "[symbol]";
+        this.arguments = "[symbol | cancel]";
         this.help = "modifies users' nicknames to prevent using ascii characters as a hoist";
         this.category = new Category("Tools");
         this.botPermissions = new Permission[]{Permission.NICKNAME_MANAGE};
@@ -38,6 +44,21 @@ public class DehoistCmd extends Command {
 
     @Override
     protected void execute(CommandEvent event) {
+        MemberJobs jobs = vortex.getMemberJobs();
+        if (event.getArgs().equalsIgnoreCase("cancel")) {
+            if (jobs.cancel(event.getGuild())) {
+                event.replySuccess("Cancelling the running job.");
+            } else {
+                event.replyWarning("There is no job running in this server.");
+            }
+
+            return;
+        }
+
+        if (jobs.isRunning(event.getGuild())) {
+            throw new CommandErrorException("A job is already running in this server. Use `" + event.getClient().getPrefix() + name + " cancel` to cancel it.");
+        }
+
         char symbol;
         if (event.getArgs().isEmpty()) {
             symbol = OtherUtil.DEHOIST_ORIGINAL[0];
@@ -58,9 +79,11 @@ public class DehoistCmd extends Command {
             throw new CommandErrorException("Provided symbol must be one character of the following: " + OtherUtil.DEHOIST_JOINED);
         }
 
-        long count = event.getGuild().getMembers().stream().filter(m -> OtherUtil.dehoist(m, symbol)).count();
-
-        event.replySuccess("Dehoisting `" + count + "` members with names starting with `" + symbol + "` or higher.");
+        event.reply(Constants.LOADING + " Starting to dehoist members with names starting with `" + symbol + "` or higher...", m -> {
+            if (!jobs.start(event.getGuild(), MemberJobs.Type.DEHOIST, String.valueOf(symbol), m)) {
+                m.editMessage(Constants.ERROR + " A job is already running in this server.").queue();
+            }
+        });
     }
 
 }
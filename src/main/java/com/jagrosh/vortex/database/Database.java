@@ -27,6 +27,9 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.IntSupplier;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -42,6 +45,7 @@ public class Database extends DatabaseConnector {
     public final TempSlowmodeManager tempslowmodes;
     public final InviteWhitelistManager inviteWhitelist;
     public final FilterManager filters;
+    public final MemberJobManager memberJobs;
     /*public final WarningManager warnings;
     public final KickingManager kicks;*/
     private static final List<CurrentId> idCache = new ArrayList<>(1);
@@ -96,6 +100,7 @@ public class Database extends DatabaseConnector {
         tempslowmodes = new TempSlowmodeManager(this);
         inviteWhitelist = new InviteWhitelistManager(this);
         filters = new FilterManager(this);
+        memberJobs = new MemberJobManager(this);
         // warnings = new WarningManager(this);
         // kicks = new KickingManager(this);
 
@@ -103,6 +108,29 @@ public class Database extends DatabaseConnector {
         init();
     }
 
+    /**
+     * Fills the caches of the guild settings tables with a query per table for every chunk of guilds, rather than a
+     * query per guild and table as the guilds are first used
+     * @param guildIds The IDs of the guilds to cache the settings of
+     * @return A summary of how many guilds had settings in every table, and how long it took
+     */
+    public String preload(Set<Long> guildIds) {
+        long start = System.currentTimeMillis();
+        StringJoiner tables = new StringJoiner(", ");
+        preload(tables, "settings", () -> settings.preload(guildIds));
+        preload(tables, "automod", () -> automod.preload(guildIds));
+        preload(tables, "ignores", () -> ignores.preload(guildIds));
+        preload(tables, "invite whitelists", () -> inviteWhitelist.preload(guildIds));
+        preload(tables, "filters", () -> filters.preload(guildIds));
+        return "Preloaded settings of " + guildIds.size() + " guilds in " + (System.currentTimeMillis() - start) + "ms (" + tables + ")";
+    }
+
+    private static void preload(StringJoiner tables, String name, IntSupplier preload) {
+        long start = System.currentTimeMillis();
+        int found = preload.getAsInt();
+        tables.add(name + ": " + (found < 0 ? "failed" : found) + " in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
     public static synchronized int genNewId(long guildId) {
         for (CurrentId currentId : idCache) {
             if (currentId.guildId == guildId) {
@@ -22,12 +22,14 @@ import com.jagrosh.easysql.columns.BooleanColumn;
 import com.jagrosh.easysql.columns.IntegerColumn;
 import com.jagrosh.easysql.columns.LongColumn;
 import com.jagrosh.vortex.Constants;
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.BoundedCache;
+import com.typesafe.config.Config;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Set;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -55,7 +57,7 @@ public class AutomodManager extends DataManager {
     public final static SQLColumn<Integer> DEHOIST_CHAR = new IntegerColumn("DEHOIST_CHAR", false, 0);
 
     // Cache
-    private final FixedCache<Long, AutomodSettings> cache = new FixedCache<>(Constants.DEFAULT_CACHE_SIZE);
+    private final BoundedCache<Long, AutomodSettings> cache = BoundedCache.<Long, AutomodSettings>builder("automod-settings").maximumSize(Constants.DEFAULT_CACHE_SIZE).build();
     private final AutomodSettings blankSettings = new AutomodSettings();
 
     public AutomodManager(DatabaseConnector connector) {
@@ -64,15 +66,27 @@ public class AutomodManager extends DataManager {
 
     // Getters
     public AutomodSettings getSettings(Guild guild) {
-        if (cache.contains(guild.getIdLong())) {
-            return cache.get(guild.getIdLong());
+        AutomodSettings settings = cache.get(guild.getIdLong());
+        if (settings != null) {
+            return settings;
+        }
+
+        settings = read(selectAll(GUILD_ID.is(guild.getIdLong())), rs -> rs.next() ? new AutomodSettings(rs) : blankSettings);
+        if (settings != null) {
+            cache.put(guild.getIdLong(), settings);
         }
 
-        AutomodSettings settings = read(selectAll(GUILD_ID.is(guild.getIdLong())), rs -> rs.next() ? new AutomodSettings(rs) : blankSettings);
-        cache.put(guild.getIdLong(), settings);
         return settings;
     }
 
+    /**
+     * Caches the automod settings of the guilds of a shard, see {@link GuildPreloader}
+     * @return The amount of guilds that had any, or -1 if a query failed
+     */
+    public int preload(Set<Long> guildIds) {
+        return GuildPreloader.preload(guildIds, GUILD_ID, cache, blankSettings, where -> read(selectAll(where), rs -> GuildPreloader.rows(rs, GUILD_ID, AutomodSettings::new)));
+    }
+
     public Field getSettingsDisplay(Guild guild) {
         AutomodSettings settings = getSettings(guild);
         return new Field(SETTINGS_TITLE, "__Anti-Advertisement__\n" + (!settings.filterInvites && !settings.filterRefs ? "Disabled\n\n" : "Invite Filter: `" + (settings.filterInvites ? "ON" : "OFF") + "`\n" + "Referral Link Filter: `" + (settings.filterRefs ? "ON" : "OFF") + "`\n" + "Resolve Links: `" + (settings.resolveUrls ? "ON" : "OFF") + "`\n\n") + "__Anti-Duplicate__\n" + (settings.useAntiDuplicate() ? "Delete Threshold: `" + settings.dupeDeleteThresh + "`\n\n" : "Disabled\n\n") + "__Maximum Mentions__\n" + (settings.maxMentions == 0 && settings.maxRoleMentions == 0 ? "Disabled\n\n" : "User Mentions: " + (settings.maxMentions == 0 ? "None\n" : "`" + settings.maxMentions + "`\n") + "Role Mentions: " + (settings.maxRoleMentions == 0 ? "None\n\n" : "`" + settings.maxRoleMentions + "`\n\n")) + "__Misc Msg Settings__\n" + (settings.maxLines == 0 && !settings.filterCopypastas ? "Disabled\n\n" : "Max Lines / Msg: " + (settings.maxLines == 0 ? "Disabled\n" : "`" + settings.maxLines + "`\n") + "Copypasta: `" + settings.filterCopypastas + "`\n") + "__Miscellaneous__\n" + "Auto AntiRaid: " + (settings.useAutoRaidMode() ? "`" + settings.raidmodeNumber + "` joins/`" + settings.raidmodeTime + "`s\n" : "Disabled\n") + "Auto Dehoist: " + (settings.dehoistChar == (char) 0 ? "Disabled" : "`" + settings.dehoistChar + "` and above")
@@ -257,7 +271,7 @@ public class AutomodManager extends DataManager {
     }
 
     private void invalidateCache(long guildId) {
-        cache.pull(guildId);
+        cache.remove(guildId);
     }
 
     public static class AutomodSettings {
@@ -296,6 +310,25 @@ public class AutomodManager extends DataManager {
             this.filterCopypastas = FILTER_COPYPASTAS.getValue(rs);
         }
 
+        /**
+         * Reads settings from a config, such as the settings file of a replay, with a key per setting, such as
+         * {@code max-lines} or {@code filter-refs}. Missing keys keep the value of a guild without settings.
+         * @param config The settings of a guild
+         */
+        public AutomodSettings(Config config) {
+            this.filterRefs = !config.hasPath("filter-refs") || config.getBoolean("filter-refs");
+            this.resolveUrls = config.hasPath("resolve-urls") && config.getBoolean("resolve-urls");
+            this.maxMentions = config.hasPath("max-mentions") ? config.getInt("max-mentions") : 0;
+            this.maxRoleMentions = config.hasPath("max-role-mentions") ? config.getInt("max-role-mentions") : 0;
+            this.maxLines = config.hasPath("max-lines") ? config.getInt("max-lines") : 0;
+            this.raidmodeNumber = config.hasPath("raidmode-number") ? config.getInt("raidmode-number") : 0;
+            this.raidmodeTime = config.hasPath("raidmode-time") ? config.getInt("raidmode-time") : 0;
+            this.filterInvites = !config.hasPath("filter-invites") || config.getBoolean("filter-invites");
+            this.dupeDeleteThresh = config.hasPath("dupe-delete-thresh") ? config.getInt("dupe-delete-thresh") : 0;
+            this.dehoistChar = config.hasPath("dehoist-char") ? config.getString("dehoist-char").charAt(0) : 0;
+            this.filterCopypastas = !config.hasPath("filter-copypastas") || config.getBoolean("filter-copypastas");
+        }
+
         public boolean useAutoRaidMode() {
             return raidmodeNumber > 1 && raidmodeTime > 1;
         }
@@ -22,10 +22,14 @@ import com.jagrosh.easysql.columns.LongColumn;
 import com.jagrosh.easysql.columns.StringColumn;
 import com.jagrosh.vortex.Constants;
 import com.jagrosh.vortex.automod.Filter;
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.BoundedCache;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
 /**
  * A database manager for storing a guilds bad words and very bad words filter.
  * The distinction between the two is that while messages that violate the bad word filter will be logged in
@@ -41,8 +45,8 @@ public class FilterManager extends DataManager {
     public final static SQLColumn<String> BAD_WORDS = new StringColumn("BAD_WORDS", false, "", Filter.MAX_CONTENT_LENGTH);
     public final static SQLColumn<String> VERY_BAD_WORDS = new StringColumn("VERY_BAD_WORDS", false, "", Filter.MAX_CONTENT_LENGTH);
 
-    private final FixedCache<Long, Filter> BAD_WORDS_CACHE = new FixedCache<>(Constants.DEFAULT_CACHE_SIZE);
-    private final FixedCache<Long, Filter> VERY_BAD_WORDS_CACHE = new FixedCache<>(Constants.DEFAULT_CACHE_SIZE);
+    // Cache
+    private final BoundedCache<Long, Filters> cache = BoundedCache.<Long, Filters>builder("filters").maximumSize(Constants.DEFAULT_CACHE_SIZE).build();
 
     public FilterManager(DatabaseConnector connector) {
         super(connector, "FILTERS");
@@ -54,41 +58,41 @@ public class FilterManager extends DataManager {
     }
 
     public Filter getBadWordsFilter(long guildId) {
-        Filter filter = BAD_WORDS_CACHE.get(guildId);
-        if (filter == null) {
-            filter = read(selectAll(GUILD_ID.is(guildId)), rs -> {
-                if (rs.next()) {
-                    try {
-                        return Filter.parseFilter(BAD_WORDS.getValue(rs));
-                    } catch (IllegalArgumentException e) {
-                        return null;
-                    }
-                }
-
-                return null;
-            });
-        }
-
-        return filter;
+        return getFilters(guildId).badWords();
     }
 
     public Filter getVeryBadWordsFilter(long guildId) {
-        Filter filter = VERY_BAD_WORDS_CACHE.get(guildId);
-        if (filter == null) {
-            filter = read(selectAll(GUILD_ID.is(guildId)), rs -> {
-                if (rs.next()) {
-                    try {
-                        return Filter.parseFilter(VERY_BAD_WORDS.getValue(rs));
-                    } catch (IllegalArgumentException e) {
-                        return null;
-                    }
-                }
-
-                return null;
-            });
+        return getFilters(guildId).veryBadWords();
+    }
+
+    /**
+     * Gets both filters of a guild. They are read from the database the first time, including when the guild has no
+     * filters, and stay cached until one of them is updated.
+     * @param guildId The ID of the guild
+     * @return The filters of the guild
+     */
+    public Filters getFilters(long guildId) {
+        Filters filters = cache.get(guildId);
+        if (filters != null) {
+            return filters;
+        }
+
+        filters = read(selectAll(GUILD_ID.is(guildId)), rs -> rs.next() ? Filters.of(rs) : Filters.NONE);
+        if (filters == null) {
+            return Filters.NONE;
         }
 
-        return filter;
+        // An update that happened while the row was being read has already cached the newer filters
+        Filters newer = cache.putIfAbsent(guildId, filters);
+        return newer == null ? filters : newer;
+    }
+
+    /**
+     * Caches the filters of the guilds of a shard, see {@link GuildPreloader}
+     * @return The amount of guilds that had any, or -1 if a query failed
+     */
+    public int preload(Set<Long> guildIds) {
+        return GuildPreloader.preload(guildIds, GUILD_ID, cache, Filters.NONE, where -> read(selectAll(where), rs -> GuildPreloader.rows(rs, GUILD_ID, Filters::of)));
     }
 
     public Field getFiltersDisplay(Guild guild) {
@@ -105,31 +109,70 @@ public class FilterManager extends DataManager {
 
     public void updateBadWordFilter(Guild guild, Filter filter) {
         long guildId = guild.getIdLong();
-        readWrite(selectAll(GUILD_ID.is(guildId)), rs -> {
+        Filters filters = readWrite(selectAll(GUILD_ID.is(guildId)), rs -> {
             if (rs.next()) {
                 BAD_WORDS.updateValue(rs, filter.printContent());
-            } else {
-                rs.moveToInsertRow();
-                GUILD_ID.updateValue(rs, guildId);
-                BAD_WORDS.updateValue(rs, filter.printContent());
-                rs.insertRow();
+                rs.updateRow();
+                return new Filters(filter, parseFilter(VERY_BAD_WORDS.getValue(rs)));
             }
+
+            rs.moveToInsertRow();
+            GUILD_ID.updateValue(rs, guildId);
+            BAD_WORDS.updateValue(rs, filter.printContent());
+            rs.insertRow();
+            return new Filters(filter, parseFilter(""));
         });
-        BAD_WORDS_CACHE.put(guildId, filter);
+        cacheUpdate(guildId, filters);
     }
 
     public void updateVeryBadWordsFilter(Guild guild, Filter filter) {
         long guildId = guild.getIdLong();
-        readWrite(selectAll(GUILD_ID.is(guildId)), rs -> {
+        Filters filters = readWrite(selectAll(GUILD_ID.is(guildId)), rs -> {
             if (rs.next()) {
                 VERY_BAD_WORDS.updateValue(rs, filter.printContent());
-            } else {
-                rs.moveToInsertRow();
-                GUILD_ID.updateValue(rs, guildId);
-                VERY_BAD_WORDS.updateValue(rs, filter.printContent());
-                rs.insertRow();
+                rs.updateRow();
+                return new Filters(parseFilter(BAD_WORDS.getValue(rs)), filter);
             }
+
+            rs.moveToInsertRow();
+            GUILD_ID.updateValue(rs, guildId);
+            VERY_BAD_WORDS.updateValue(rs, filter.printContent());
+            rs.insertRow();
+            return new Filters(parseFilter(""), filter);
         });
-        VERY_BAD_WORDS_CACHE.put(guildId, filter);
+        cacheUpdate(guildId, filters);
+    }
+
+    private void cacheUpdate(long guildId, Filters filters) {
+        if (filters == null) {
+            cache.remove(guildId);
+        } else {
+            cache.put(guildId, filters);
+        }
+    }
+
+    private static Filter parseFilter(String content) {
+        if (content == null) {
+            return null;
+        }
+
+        try {
+            return Filter.parseFilter(content);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Both filters of a guild
+     * @param badWords The bad words filter, or null if there is none
+     * @param veryBadWords The very bad words filter, or null if there is none
+     */
+    public record Filters(Filter badWords, Filter veryBadWords) {
+        public static final Filters NONE = new Filters(null, null);
+
+        private static Filters of(ResultSet rs) throws SQLException {
+            return new Filters(parseFilter(BAD_WORDS.getValue(rs)), parseFilter(VERY_BAD_WORDS.getValue(rs)));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.jagrosh.vortex.database.managers;
+
+import com.jagrosh.easysql.SQLColumn;
+import com.jagrosh.vortex.utils.BoundedCache;
+import com.jagrosh.vortex.utils.LongSet;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fills the cache of a per-guild settings table for many guilds at once, such as when a shard is ready, with a query
+ * per chunk of guilds rather than one per guild as they are first used. Guilds without rows are cached with the empty
+ * value of the table.
+ */
+final class GuildPreloader {
+    private static final int CHUNK_SIZE = 1000;
+
+    private GuildPreloader() {}
+
+    /**
+     * @param guildIds The IDs of the guilds
+     * @param guildColumn The guild ID column of the table
+     * @param cache The cache to fill
+     * @param empty What guilds without rows are cached as
+     * @param reader Reads the rows matching a where clause into values by guild ID, returning null if the query failed
+     * @return The amount of guilds that had rows, or -1 if a query failed, in which case the guilds of that chunk are
+     * left to be loaded as they are used
+     */
+    static <V> int preload(Set<Long> guildIds, SQLColumn<Long> guildColumn, BoundedCache<Long, V> cache, V empty, ChunkReader<V> reader) {
+        List<Long> ids = new ArrayList<>(guildIds);
+        int found = 0;
+        boolean failed = false;
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE));
+            Map<Long, V> values = reader.read(guildColumn.name + " IN (" + chunk.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")");
+            if (values == null) {
+                failed = true;
+                continue;
+            }
+
+            values.forEach(cache::putIfAbsent);
+            chunk.forEach(guildId -> cache.putIfAbsent(guildId, empty));
+            found += values.size();
+        }
+
+        return failed ? -1 : found;
+    }
+
+    /**
+     * Reads a table with a row per guild
+     * @return The value of every row by guild ID
+     */
+    static <V> Map<Long, V> rows(ResultSet rs, SQLColumn<Long> guildColumn, RowMapper<V> mapper) throws SQLException {
+        Map<Long, V> values = new HashMap<>();
+        while (rs.next()) {
+            values.put(guildColumn.getValue(rs), mapper.map(rs));
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads a table with a row per ID in a guild's set
+     * @return The set of every guild by guild ID
+     */
+    static Map<Long, LongSet> sets(ResultSet rs, SQLColumn<Long> guildColumn, SQLColumn<Long> idColumn) throws SQLException {
+        Map<Long, List<Long>> ids = new HashMap<>();
+        while (rs.next()) {
+            ids.computeIfAbsent(guildColumn.getValue(rs), id -> new ArrayList<>()).add(idColumn.getValue(rs));
+        }
+
+        Map<Long, LongSet> sets = new HashMap<>();
+        ids.forEach((guildId, list) -> sets.put(guildId, LongSet.of(list)));
+        return sets;
+    }
+
+    @FunctionalInterface
+    interface ChunkReader<V> {
+        Map<Long, V> read(String where);
+    }
+
+    @FunctionalInterface
+    interface RowMapper<V> {
+        V map(ResultSet rs) throws SQLException;
+    }
+}
@@ -24,7 +24,7 @@ import com.jagrosh.easysql.columns.StringColumn;
 import com.jagrosh.jdautilities.command.GuildSettingsManager;
 import com.jagrosh.jdautilities.command.GuildSettingsProvider;
 import com.jagrosh.vortex.Constants;
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.BoundedCache;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Guild.VerificationLevel;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
@@ -37,6 +37,7 @@ import java.time.ZoneId;
 import java.time.zone.ZoneRulesException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Set;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -65,7 +66,7 @@ public class GuildSettingsDataManager extends DataManager implements GuildSettin
     // level to set permission when finished
 
     // Cache
-    private final FixedCache<Long, GuildSettings> cache = new FixedCache<>(Constants.DEFAULT_CACHE_SIZE * 3);
+    private final BoundedCache<Long, GuildSettings> cache = BoundedCache.<Long, GuildSettings>builder("guild-settings").maximumSize(Constants.DEFAULT_CACHE_SIZE * 3).build();
     private final GuildSettings blankSettings = new GuildSettings();
 
     public GuildSettingsDataManager(DatabaseConnector connector) {
@@ -75,15 +76,27 @@ public class GuildSettingsDataManager extends DataManager implements GuildSettin
     // Getters
     @Override
     public GuildSettings getSettings(Guild guild) {
-        if (cache.contains(guild.getIdLong())) {
-            return cache.get(guild.getIdLong());
+        GuildSettings settings = cache.get(guild.getIdLong());
+        if (settings != null) {
+            return settings;
+        }
+
+        settings = read(selectAll(GUILD_ID.is(guild.getIdLong())), rs -> rs.next() ? new GuildSettings(rs) : blankSettings);
+        if (settings != null) {
+            cache.put(guild.getIdLong(), settings);
         }
 
-        GuildSettings settings = read(selectAll(GUILD_ID.is(guild.getIdLong())), rs -> rs.next() ? new GuildSettings(rs) : blankSettings);
-        cache.put(guild.getIdLong(), settings);
         return settings;
     }
 
+    /**
+     * Caches the settings of the guilds of a shard, see {@link GuildPreloader}
+     * @return The amount of guilds that had any, or -1 if a query failed
+     */
+    public int preload(Set<Long> guildIds) {
+        return GuildPreloader.preload(guildIds, GUILD_ID, cache, blankSettings, where -> read(selectAll(where), rs -> GuildPreloader.rows(rs, GUILD_ID, GuildSettings::new)));
+    }
+
     public Field getSettingsDisplay(Guild guild) {
         GuildSettings settings = getSettings(guild);
         TextChannel modlog = settings.getModLogChannel(guild);
@@ -288,7 +301,7 @@ public class GuildSettingsDataManager extends DataManager implements GuildSettin
     }
 
     private void invalidateCache(long guildId) {
-        cache.pull(guildId);
+        cache.remove(guildId);
     }
 
     public class GuildSettings implements GuildSettingsProvider {
@@ -21,13 +21,14 @@ import com.jagrosh.easysql.SQLColumn;
 import com.jagrosh.easysql.columns.IntegerColumn;
 import com.jagrosh.easysql.columns.LongColumn;
 import com.jagrosh.vortex.Constants;
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.BoundedCache;
+import com.jagrosh.vortex.utils.LongSet;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -40,7 +41,7 @@ public class IgnoreManager extends DataManager {
     public final static SQLColumn<Long> ENTITY_ID = new LongColumn("ENTITY_ID", false, 0L, true);
     public final static SQLColumn<Integer> TYPE = new IntegerColumn("TYPE", false, 0);
 
-    private final FixedCache<Long, Set<Long>> cache = new FixedCache<>(Constants.DEFAULT_CACHE_SIZE);
+    private final BoundedCache<Long, LongSet> cache = BoundedCache.<Long, LongSet>builder("ignores").maximumSize(Constants.DEFAULT_CACHE_SIZE).build();
 
     public IgnoreManager(DatabaseConnector connector) {
         super(connector, "IGNORED");
@@ -51,84 +52,103 @@ public class IgnoreManager extends DataManager {
     }
 
     public boolean isIgnored(Member member) {
-        Set<Long> ignored = getIgnores(member.getGuild());
-        return member.getRoles().stream().anyMatch(r -> ignored.contains(r.getIdLong()));
+        LongSet ignored = getIgnores(member.getGuild());
+        if (ignored.isEmpty()) {
+            return false;
+        }
+
+        for (Role role : member.getRoles()) {
+            if (ignored.contains(role.getIdLong())) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     public List<TextChannel> getIgnoredChannels(Guild guild) {
-        return getIgnores(guild).stream().map(l -> guild.getTextChannelById(l)).filter(t -> t != null).collect(Collectors.toList());
+        return getIgnores(guild).stream().mapToObj(l -> guild.getTextChannelById(l)).filter(t -> t != null).collect(Collectors.toList());
     }
 
     public List<Role> getIgnoredRoles(Guild guild) {
-        return getIgnores(guild).stream().map(l -> guild.getRoleById(l)).filter(r -> r != null).collect(Collectors.toList());
+        return getIgnores(guild).stream().mapToObj(l -> guild.getRoleById(l)).filter(r -> r != null).collect(Collectors.toList());
     }
 
-    private Set<Long> getIgnores(Guild guild) {
+    private LongSet getIgnores(Guild guild) {
         long gid = guild.getIdLong();
-        if (cache.contains(gid)) {
-            return cache.get(gid);
+        LongSet cached = cache.get(gid);
+        if (cached != null) {
+            return cached;
         }
 
-        Set<Long> ret = read(selectAll(GUILD_ID.is(gid)), rs -> {
-            Set<Long> set = new HashSet<>();
+        LongSet ret = read(selectAll(GUILD_ID.is(gid)), rs -> {
+            List<Long> list = new ArrayList<>();
             while (rs.next()) {
-                set.add(ENTITY_ID.getValue(rs));
+                list.add(ENTITY_ID.getValue(rs));
             }
 
-            return set;
+            return LongSet.of(list);
         });
-        cache.put(gid, ret);
-        return ret;
+        if (ret == null) {
+            return LongSet.EMPTY;
+        }
+
+        // An ignore or unignore that happened while the rows were being read has already cached the newer set
+        LongSet newer = cache.putIfAbsent(gid, ret);
+        return newer == null ? ret : newer;
+    }
+
+    /**
+     * Caches the ignored roles and channels of the guilds of a shard, see {@link GuildPreloader}
+     * @return The amount of guilds that had any, or -1 if a query failed
+     */
+    public int preload(Set<Long> guildIds) {
+        return GuildPreloader.preload(guildIds, GUILD_ID, cache, LongSet.EMPTY, where -> read(selectAll(where), rs -> GuildPreloader.sets(rs, GUILD_ID, ENTITY_ID)));
     }
 
     // set things in database
     public boolean ignore(TextChannel tc) {
-        invalidateCache(tc.getGuild());
-        return readWrite(selectAll(GUILD_ID.is(tc.getGuild().getIdLong()) + " AND " + ENTITY_ID.is(tc.getIdLong())), rs -> {
-            if (rs.next()) {
-                return false;
-            }
-
-            rs.moveToInsertRow();
-            GUILD_ID.updateValue(rs, tc.getGuild().getIdLong());
-            ENTITY_ID.updateValue(rs, tc.getIdLong());
-            TYPE.updateValue(rs, Type.TEXT_CHANNEL.ordinal());
-            rs.insertRow();
-            return true;
-        });
+        return ignore(tc.getGuild(), tc.getIdLong(), Type.TEXT_CHANNEL);
     }
 
     public boolean ignore(Role role) {
-        invalidateCache(role.getGuild());
-        return readWrite(selectAll(GUILD_ID.is(role.getGuild().getIdLong()) + " AND " + ENTITY_ID.is(role.getIdLong())), rs -> {
+        return ignore(role.getGuild(), role.getIdLong(), Type.ROLE);
+    }
+
+    public boolean unignore(TextChannel tc) {
+        return unignore(tc.getGuild(), tc.getIdLong());
+    }
+
+    public boolean unignore(Role role) {
+        return unignore(role.getGuild(), role.getIdLong());
+    }
+
+    private synchronized boolean ignore(Guild guild, long entityId, Type type) {
+        Boolean added = readWrite(selectAll(GUILD_ID.is(guild.getIdLong()) + " AND " + ENTITY_ID.is(entityId)), rs -> {
             if (rs.next()) {
                 return false;
             }
 
             rs.moveToInsertRow();
-            GUILD_ID.updateValue(rs, role.getGuild().getIdLong());
-            ENTITY_ID.updateValue(rs, role.getIdLong());
-            TYPE.updateValue(rs, Type.ROLE.ordinal());
+            GUILD_ID.updateValue(rs, guild.getIdLong());
+            ENTITY_ID.updateValue(rs, entityId);
+            TYPE.updateValue(rs, type.ordinal());
             rs.insertRow();
             return true;
         });
-    }
-
-    public boolean unignore(TextChannel tc) {
-        invalidateCache(tc.getGuild());
-        return readWrite(selectAll(GUILD_ID.is(tc.getGuild().getIdLong()) + " AND " + ENTITY_ID.is(tc.getIdLong())), rs -> {
-            if (rs.next()) {
-                rs.deleteRow();
-                return true;
-            }
 
+        if (added == null) {
+            cache.remove(guild.getIdLong());
             return false;
-        });
+        }
+
+        // The new set is swapped in rather than read from the database again
+        cache.put(guild.getIdLong(), getIgnores(guild).with(entityId));
+        return added;
     }
 
-    public boolean unignore(Role role) {
-        invalidateCache(role.getGuild());
-        return readWrite(selectAll(GUILD_ID.is(role.getGuild().getIdLong()) + " AND " + ENTITY_ID.is(role.getIdLong())), rs -> {
+    private synchronized boolean unignore(Guild guild, long entityId) {
+        Boolean removed = readWrite(selectAll(GUILD_ID.is(guild.getIdLong()) + " AND " + ENTITY_ID.is(entityId)), rs -> {
             if (rs.next()) {
                 rs.deleteRow();
                 return true;
@@ -136,10 +156,14 @@ public class IgnoreManager extends DataManager {
 
             return false;
         });
-    }
 
-    private void invalidateCache(Guild guild) {
-        cache.pull(guild.getIdLong());
+        if (removed == null) {
+            cache.remove(guild.getIdLong());
+            return false;
+        }
+
+        cache.put(guild.getIdLong(), getIgnores(guild).without(entityId));
+        return removed;
     }
 
     private enum Type {
@@ -5,7 +5,8 @@ import com.jagrosh.easysql.DatabaseConnector;
 import com.jagrosh.easysql.SQLColumn;
 import com.jagrosh.easysql.columns.LongColumn;
 import com.jagrosh.vortex.Constants;
-import com.jagrosh.vortex.utils.FixedCache;
+import com.jagrosh.vortex.utils.BoundedCache;
+import com.jagrosh.vortex.utils.LongSet;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.Guild;
 
@@ -22,7 +23,7 @@ public class InviteWhitelistManager extends DataManager {
     public static final SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID", false, 0L);
     public static final SQLColumn<Long> WHITELIST_ID = new LongColumn("WL_ID", false, 0L);
 
-    private final FixedCache<Long, List<Long>> cache = new FixedCache<>(Constants.DEFAULT_CACHE_SIZE);
+    private final BoundedCache<Long, LongSet> cache = BoundedCache.<Long, LongSet>builder("invite-whitelists").maximumSize(Constants.DEFAULT_CACHE_SIZE).build();
 
     public InviteWhitelistManager(DatabaseConnector connector) {
         super(connector, "INVITE_WL");
@@ -33,13 +34,12 @@ public class InviteWhitelistManager extends DataManager {
         return GUILD_ID + ", " + WHITELIST_ID;
     }
 
-    public boolean addToWhitelist(Guild guild, long whitelistId) {
+    public synchronized boolean addToWhitelist(Guild guild, long whitelistId) {
         if (readWhitelist(guild).size() + 1 > MAX_WHITELISTED_GUILDS) {
             return false;
         }
 
-        invalidateCache(guild);
-        return readWrite(selectAll(GUILD_ID.is(guild.getId()) + " AND " + WHITELIST_ID.is(whitelistId)), rs -> {
+        Boolean added = readWrite(selectAll(GUILD_ID.is(guild.getId()) + " AND " + WHITELIST_ID.is(whitelistId)), rs -> {
             if (rs.next()) {
                 return false;
             }
@@ -50,16 +50,24 @@ public class InviteWhitelistManager extends DataManager {
             rs.insertRow();
             return true;
         });
+
+        if (added == null) {
+            cache.remove(guild.getIdLong());
+            return false;
+        }
+
+        // The new whitelist is swapped in rather than read from the database again
+        cache.put(guild.getIdLong(), readWhitelist(guild).with(whitelistId));
+        return added;
     }
 
-    public void addAllToWhitelist(Guild guild, Collection<Long> whitelistIds) {
+    public synchronized void addAllToWhitelist(Guild guild, Collection<Long> whitelistIds) {
         if (readWhitelist(guild).size() + whitelistIds.size() > MAX_WHITELISTED_GUILDS) {
             return;
         }
 
-        invalidateCache(guild);
         Set<Long> ids = new HashSet<>(whitelistIds);
-        readWrite(selectAll(String.format("%s AND %s IN (%s)", GUILD_ID.is(guild.getId()), WHITELIST_ID.name, ids.stream().map(String::valueOf).collect(Collectors.joining(",")))), rs -> {
+        Boolean added = readWrite(selectAll(String.format("%s AND %s IN (%s)", GUILD_ID.is(guild.getId()), WHITELIST_ID.name, ids.stream().map(String::valueOf).collect(Collectors.joining(",")))), rs -> {
             while (rs.next()) {
                 ids.remove(WHITELIST_ID.getValue(rs));
             }
@@ -70,12 +78,19 @@ public class InviteWhitelistManager extends DataManager {
                 WHITELIST_ID.updateValue(rs, id);
                 rs.insertRow();
             }
+
+            return true;
         });
+
+        if (added == null) {
+            cache.remove(guild.getIdLong());
+        } else {
+            cache.put(guild.getIdLong(), readWhitelist(guild).withAll(whitelistIds));
+        }
     }
 
-    public boolean removeFromWhitelist(Guild guild, long whitelistId) {
-        invalidateCache(guild);
-        return readWrite(selectAll(GUILD_ID.is(guild.getId()) + " AND " + WHITELIST_ID.is(whitelistId)), rs -> {
+    public synchronized boolean removeFromWhitelist(Guild guild, long whitelistId) {
+        Boolean removed = readWrite(selectAll(GUILD_ID.is(guild.getId()) + " AND " + WHITELIST_ID.is(whitelistId)), rs -> {
             if (rs.next()) {
                 rs.deleteRow();
                 return true;
@@ -83,10 +98,17 @@ public class InviteWhitelistManager extends DataManager {
 
             return false;
         });
+
+        if (removed == null) {
+            cache.remove(guild.getIdLong());
+            return false;
+        }
+
+        cache.put(guild.getIdLong(), readWhitelist(guild).without(whitelistId));
+        return removed;
     }
 
-    public void removeAllFromWhitelist(Guild guild, Collection<Long> whitelistIds) {
-        invalidateCache(guild);
+    public synchronized void removeAllFromWhitelist(Guild guild, Collection<Long> whitelistIds) {
         try {
             PreparedStatement stmt = getConnection().prepareStatement("DELETE FROM " + getTableName() + " WHERE " + GUILD_ID.name + " = ? AND " + WHITELIST_ID.name + " IN (" + IntStream.range(0, whitelistIds.size()).mapToObj(i -> "?").collect(Collectors.joining(",")) + ')');
             int paramIndex = 0;
@@ -98,27 +120,45 @@ public class InviteWhitelistManager extends DataManager {
             stmt.executeUpdate();
         } catch (SQLException e) {
             log.error("Exception in SQL: " + e);
+            cache.remove(guild.getIdLong());
+            return;
         }
+
+        cache.put(guild.getIdLong(), readWhitelist(guild).withoutAll(whitelistIds));
     }
 
-    public List<Long> readWhitelist(Guild guild) {
-        if (cache.contains(guild.getIdLong())) {
-            return cache.get(guild.getIdLong());
+    /**
+     * @param guild The guild
+     * @return The IDs of the guilds whose invites are allowed in the guild
+     */
+    public LongSet readWhitelist(Guild guild) {
+        LongSet cached = cache.get(guild.getIdLong());
+        if (cached != null) {
+            return cached;
         }
 
-        List<Long> whitelist = read(selectAll(GUILD_ID.is(guild.getId())), rs -> {
-            List<Long> list = new LinkedList<>();
+        LongSet whitelist = read(selectAll(GUILD_ID.is(guild.getId())), rs -> {
+            List<Long> list = new ArrayList<>();
             while (rs.next()) {
                 list.add(WHITELIST_ID.getValue(rs));
             }
 
-            return Collections.unmodifiableList(list);
+            return LongSet.of(list);
         });
-        cache.put(guild.getIdLong(), whitelist);
-        return whitelist;
+        if (whitelist == null) {
+            return LongSet.EMPTY;
+        }
+
+        // A change that happened while the rows were being read has already cached the newer whitelist
+        LongSet newer = cache.putIfAbsent(guild.getIdLong(), whitelist);
+        return newer == null ? whitelist : newer;
     }
 
-    private void invalidateCache(Guild guild) {
-        cache.pull(guild.getIdLong());
+    /**
+     * Caches the invite whitelists of the guilds of a shard, see {@link GuildPreloader}
+     * @return The amount of guilds that had any, or -1 if a query failed
+     */
+    public int preload(Set<Long> guildIds) {
+        return GuildPreloader.preload(guildIds, GUILD_ID, cache, LongSet.EMPTY, where -> read(selectAll(where), rs -> GuildPreloader.sets(rs, GUILD_ID, WHITELIST_ID)));
     }
-}
\ No newline at end of file
+}
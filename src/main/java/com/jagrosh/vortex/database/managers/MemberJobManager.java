@@ -0,0 +1,94 @@
+package com.jagrosh.vortex.database.managers;
+
+import com.jagrosh.easysql.DataManager;
+import com.jagrosh.easysql.DatabaseConnector;
+import com.jagrosh.easysql.SQLColumn;
+import com.jagrosh.easysql.columns.IntegerColumn;
+import com.jagrosh.easysql.columns.LongColumn;
+import com.jagrosh.easysql.columns.StringColumn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A database manager for storing the progress of bulk member jobs, such as dehoisting a whole guild, so they can pick up
+ * where they left off after a restart. Every guild can only have one job at a time.
+ */
+public class MemberJobManager extends DataManager {
+    public static final SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID", false, 0L, true);
+    public static final SQLColumn<String> TYPE = new StringColumn("TYPE", false, "", 32);
+    public static final SQLColumn<String> ARGUMENT = new StringColumn("ARGUMENT", false, "", 32);
+    public static final SQLColumn<Long> CHANNEL_ID = new LongColumn("CHANNEL_ID", false, 0L);
+    public static final SQLColumn<Long> MESSAGE_ID = new LongColumn("MESSAGE_ID", false, 0L);
+    public static final SQLColumn<Long> CURSOR = new LongColumn("CURSOR", false, 0L);
+    public static final SQLColumn<Integer> PROCESSED = new IntegerColumn("PROCESSED", false, 0);
+    public static final SQLColumn<Integer> CHANGED = new IntegerColumn("CHANGED", false, 0);
+
+    public MemberJobManager(DatabaseConnector connector) {
+        super(connector, "MEMBER_JOBS");
+    }
+
+    /**
+     * Saves the progress of a job, replacing whatever job was saved for its guild
+     * @param job The job
+     */
+    public void saveJob(SavedJob job) {
+        readWrite(selectAll(GUILD_ID.is(job.guildId())), rs -> {
+            boolean exists = rs.next();
+            if (!exists) {
+                rs.moveToInsertRow();
+                GUILD_ID.updateValue(rs, job.guildId());
+            }
+
+            TYPE.updateValue(rs, job.type());
+            ARGUMENT.updateValue(rs, job.argument());
+            CHANNEL_ID.updateValue(rs, job.channelId());
+            MESSAGE_ID.updateValue(rs, job.messageId());
+            CURSOR.updateValue(rs, job.cursor());
+            PROCESSED.updateValue(rs, job.processed());
+            CHANGED.updateValue(rs, job.changed());
+            if (exists) {
+                rs.updateRow();
+            } else {
+                rs.insertRow();
+            }
+        });
+    }
+
+    public void removeJob(long guildId) {
+        readWrite(selectAll(GUILD_ID.is(guildId)), rs -> {
+            if (rs.next()) {
+                rs.deleteRow();
+            }
+        });
+    }
+
+    /**
+     * @return Every job that hasn't finished yet
+     */
+    public List<SavedJob> getJobs() {
+        List<SavedJob> jobs = read(selectAll(), rs -> {
+            List<SavedJob> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(new SavedJob(GUILD_ID.getValue(rs), TYPE.getValue(rs), ARGUMENT.getValue(rs), CHANNEL_ID.getValue(rs), MESSAGE_ID.getValue(rs), CURSOR.getValue(rs), PROCESSED.getValue(rs), CHANGED.getValue(rs)));
+            }
+
+            return list;
+        });
+
+        return jobs == null ? List.of() : jobs;
+    }
+
+    /**
+     * The progress of a job
+     * @param guildId The ID of the guild the job runs in
+     * @param type The type of the job
+     * @param argument What the job was started with, such as the dehoist symbol
+     * @param channelId The ID of the channel of the status message
+     * @param messageId The ID of the status message
+     * @param cursor The ID of the last member that was handled, members are handled in order of their IDs
+     * @param processed The amount of members that were handled
+     * @param changed The amount of members that were changed
+     */
+    public record SavedJob(long guildId, String type, String argument, long channelId, long messageId, long cursor, int processed, int changed) {}
+}
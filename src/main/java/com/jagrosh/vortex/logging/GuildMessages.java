@@ -0,0 +1,293 @@
+package com.jagrosh.vortex.logging;
+
+import com.jagrosh.vortex.logging.MessageCache.CachedMessage;
+import com.jagrosh.vortex.utils.LongLongMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * The cached messages of one guild, in the order they were first cached, as a ring of primitive IDs and encoded
+ * messages. Every message has a sequence number that only goes up, its slot in the ring is the sequence number masked by
+ * the capacity, and an index maps message IDs to sequence numbers. Removed messages leave a hole until the ring is
+ * compacted, and the oldest messages are dropped from the head of the ring to stay under a byte limit.
+ * <p>
+ * Every message also links to the sequence number of the message before it by the same author and in the same channel,
+ * and the newest message of every author and channel is kept in a map. Looking up the recent messages of an author or
+ * channel then only walks its own messages, newest first, rather than every message of the guild. Messages aren't
+ * always cached in order of their IDs, such as when an old message that wasn't cached is edited, so every slot also
+ * keeps the highest message ID cached up to it, and a walk for messages from some ID on stops once that is lower.
+ */
+class GuildMessages {
+    /** About how much memory an entry takes besides its encoded bytes, with its slots in the arrays and the indexes */
+    static final int ENTRY_OVERHEAD = 112;
+    private static final int MIN_CAPACITY = 16;
+    private static final long NONE = -1;
+
+    private final long guildId;
+    private final AtomicLong total;
+    private final LongLongMap index = new LongLongMap();
+    private final LongLongMap lastByAuthor = new LongLongMap();
+    private final LongLongMap lastByChannel = new LongLongMap();
+    private long[] ids = new long[MIN_CAPACITY];
+    private long[] authors = new long[MIN_CAPACITY];
+    private long[] channels = new long[MIN_CAPACITY];
+    private long[] prevByAuthor = new long[MIN_CAPACITY];
+    private long[] prevByChannel = new long[MIN_CAPACITY];
+    private long[] highestId = new long[MIN_CAPACITY];
+    private byte[][] data = new byte[MIN_CAPACITY][];
+    private long head = 0, tail = 0;
+    private long bytes = 0;
+
+    /**
+     * @param guildId The ID of the guild
+     * @param total The byte count of the whole cache, which is kept up to date with this guild's changes
+     */
+    GuildMessages(long guildId, AtomicLong total) {
+        this.guildId = guildId;
+        this.total = total;
+    }
+
+    /**
+     * Caches a message, or replaces the cached message with the same ID in place, such as after an edit
+     * @return The message that was replaced, or null if the message wasn't cached yet
+     */
+    synchronized CachedMessage put(long id, long author, long channel, byte[] encoded) {
+        long seq = index.get(id, -1);
+        if (seq != -1) {
+            int slot = slot(seq);
+            CachedMessage previous = entry(slot);
+            data[slot] = encoded;
+            account(encoded.length - previous.getEncodedLength());
+            return previous;
+        }
+
+        if (tail - head == ids.length) {
+            // Compacting is enough if at least half the ring is holes
+            resize(index.size() * 2 <= ids.length ? ids.length : ids.length * 2);
+        }
+
+        int slot = slot(tail);
+        ids[slot] = id;
+        authors[slot] = author;
+        channels[slot] = channel;
+        data[slot] = encoded;
+        link(slot, tail);
+        index.put(id, tail++, -1);
+        account(encoded.length + ENTRY_OVERHEAD);
+        return null;
+    }
+
+    /**
+     * @return The message that was removed, or null if it wasn't cached
+     */
+    synchronized CachedMessage remove(long id) {
+        long seq = index.remove(id, -1);
+        if (seq == -1) {
+            return null;
+        }
+
+        int slot = slot(seq);
+        CachedMessage removed = entry(slot);
+
+        // The hole keeps its IDs and links, so the author and channel chains still go through it
+        data[slot] = null;
+        account(-(removed.getEncodedLength() + ENTRY_OVERHEAD));
+        skipHoles();
+        return removed;
+    }
+
+    /**
+     * @param authorId The ID of the author
+     * @param minId The lowest message ID to include, such as a snowflake made from a time
+     * @return The cached messages of the author from that ID on, oldest first
+     */
+    synchronized List<CachedMessage> byAuthor(long authorId, long minId) {
+        List<CachedMessage> found = new ArrayList<>();
+        for (long seq = lastByAuthor.get(authorId, NONE); seq >= head; seq = prevByAuthor[slot(seq)]) {
+            int slot = slot(seq);
+            if (highestId[slot] < minId) {
+                break;
+            }
+
+            if (data[slot] != null && ids[slot] >= minId) {
+                found.add(entry(slot));
+            }
+        }
+
+        Collections.reverse(found);
+        return found;
+    }
+
+    /**
+     * @param authorId The ID of the author
+     * @param minId The lowest message ID to include, such as a snowflake made from a time
+     * @return The IDs of the cached messages of the author from that ID on, by the ID of their channel, oldest first
+     */
+    synchronized Map<Long, List<Long>> idsByAuthor(long authorId, long minId) {
+        Map<Long, List<Long>> found = new LinkedHashMap<>();
+        for (long seq = lastByAuthor.get(authorId, NONE); seq >= head; seq = prevByAuthor[slot(seq)]) {
+            int slot = slot(seq);
+            if (highestId[slot] < minId) {
+                break;
+            }
+
+            if (data[slot] != null && ids[slot] >= minId) {
+                found.computeIfAbsent(channels[slot], c -> new ArrayList<>()).add(ids[slot]);
+            }
+        }
+
+        found.values().forEach(Collections::reverse);
+        return found;
+    }
+
+    /**
+     * @param channelId The ID of the channel
+     * @param limit The maximum amount of messages
+     * @return The newest cached messages in the channel, oldest first
+     */
+    synchronized List<CachedMessage> byChannel(long channelId, int limit) {
+        List<CachedMessage> found = new ArrayList<>();
+        for (long seq = lastByChannel.get(channelId, NONE); seq >= head && found.size() < limit; seq = prevByChannel[slot(seq)]) {
+            int slot = slot(seq);
+            if (data[slot] != null) {
+                found.add(entry(slot));
+            }
+        }
+
+        Collections.reverse(found);
+        return found;
+    }
+
+    /**
+     * @return Every cached message that matches the predicate, oldest first
+     */
+    synchronized List<CachedMessage> find(Predicate<CachedMessage> predicate) {
+        List<CachedMessage> found = new ArrayList<>();
+        for (long seq = head; seq < tail; seq++) {
+            int slot = slot(seq);
+            if (data[slot] != null) {
+                CachedMessage message = entry(slot);
+                if (predicate.test(message)) {
+                    found.add(message);
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Drops the oldest messages until the guild takes up no more than a limit
+     * @param limit The byte limit
+     * @return The amount of messages that were dropped
+     */
+    synchronized int trim(long limit) {
+        int dropped = 0;
+        while (bytes > limit && head < tail) {
+            int slot = slot(head);
+            account(-(data[slot].length + ENTRY_OVERHEAD));
+            index.remove(ids[slot], -1);
+            data[slot] = null;
+            dropped++;
+            skipHoles();
+        }
+
+        if (ids.length > MIN_CAPACITY && (tail - head) * 4 < ids.length) {
+            resize(ids.length / 2);
+        }
+
+        return dropped;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    private CachedMessage entry(int slot) {
+        return new CachedMessage(ids[slot], authors[slot], channels[slot], guildId, data[slot]);
+    }
+
+    private void account(long delta) {
+        bytes += delta;
+        total.addAndGet(delta);
+    }
+
+    /**
+     * Links a new message to the messages before it by the same author and in the same channel
+     */
+    private void link(int slot, long seq) {
+        prevByAuthor[slot] = lastByAuthor.put(authors[slot], seq, NONE);
+        prevByChannel[slot] = lastByChannel.put(channels[slot], seq, NONE);
+        highestId[slot] = seq > head ? Math.max(ids[slot], highestId[slot(seq - 1)]) : ids[slot];
+    }
+
+    /**
+     * Moves the head past the holes at the start of the ring, forgetting authors and channels whose newest message is
+     * no longer in the ring
+     */
+    private void skipHoles() {
+        while (head < tail && data[slot(head)] == null) {
+            int slot = slot(head);
+            if (lastByAuthor.get(authors[slot], NONE) == head) {
+                lastByAuthor.remove(authors[slot], NONE);
+            }
+
+            if (lastByChannel.get(channels[slot], NONE) == head) {
+                lastByChannel.remove(channels[slot], NONE);
+            }
+
+            head++;
+        }
+    }
+
+    private int slot(long seq) {
+        return (int) (seq & (ids.length - 1));
+    }
+
+    /**
+     * Moves the messages into a ring of a new capacity without the holes, giving them new sequence numbers from 0 and
+     * linking them up again
+     */
+    private void resize(int capacity) {
+        long[] oldIds = ids, oldAuthors = authors, oldChannels = channels;
+        byte[][] oldData = data;
+        long oldHead = head, oldTail = tail;
+        int oldMask = oldIds.length - 1;
+
+        ids = new long[capacity];
+        authors = new long[capacity];
+        channels = new long[capacity];
+        prevByAuthor = new long[capacity];
+        prevByChannel = new long[capacity];
+        highestId = new long[capacity];
+        data = new byte[capacity][];
+        lastByAuthor.clear();
+        lastByChannel.clear();
+        head = 0;
+        int count = 0;
+        for (long seq = oldHead; seq < oldTail; seq++) {
+            int slot = (int) (seq & oldMask);
+            if (oldData[slot] != null) {
+                ids[count] = oldIds[slot];
+                authors[count] = oldAuthors[slot];
+                channels[count] = oldChannels[slot];
+                data[count] = oldData[slot];
+                link(count, count);
+                index.put(oldIds[slot], count, -1);
+                count++;
+            }
+        }
+
+        tail = count;
+    }
+}
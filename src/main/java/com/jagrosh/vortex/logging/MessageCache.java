@@ -15,79 +15,292 @@
  */
 package com.jagrosh.vortex.logging;
 
-import com.jagrosh.vortex.utils.FixedCache;
-import lombok.Getter;
+import com.typesafe.config.Config;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.ISnowflake;
 import net.dv8tion.jda.api.entities.Message;
-import net.dv8tion.jda.api.entities.Message.Attachment;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.TimeUtil;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-
 
 /**
+ * Caches recent messages so their old content can be logged when they are edited or deleted. Messages are stored
+ * encoded, as primitive IDs and a byte array with the UTF-8 content, the author's name and the url and file name of
+ * every attachment, in a ring per guild. All guilds share one byte budget. Once it is used up, the guilds that take up
+ * the most drop their oldest messages until the cache is back under 7/8 of the budget, so a few busy guilds can't push
+ * out the messages of every quiet one.
+ * <p>
+ * The cache can also be kept on disk with a {@link MessageLog}, so messages from before a restart, or that were dropped
+ * to stay under the budget, can still be logged when they are edited or deleted.
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class MessageCache {
-    private final static int SIZE = 1000;
-    private final HashMap<Long, FixedCache<Long, CachedMessage>> cache = new HashMap<>();
+    private final long budget;
+    private final MessageLog messageLog;
+    private final ConcurrentHashMap<Long, GuildMessages> guilds = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder evicted = new LongAdder();
+
+    public MessageCache(Config config) {
+        this(config.getBytes("message-cache.budget"), config.getBoolean("message-cache.log.enabled") ? new MessageLog(config.getConfig("message-cache.log")) : null);
+    }
+
+    /**
+     * @param budget The maximum amount of bytes all cached messages together can take up
+     */
+    public MessageCache(long budget) {
+        this(budget, null);
+    }
+
+    private MessageCache(long budget, MessageLog messageLog) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("The message cache needs a budget of at least 1 byte");
+        }
 
+        this.budget = budget;
+        this.messageLog = messageLog;
+    }
+
+    /**
+     * Caches a message that was just sent
+     * @param m The message
+     * @return The cached version of the message from before, or null if it wasn't cached
+     */
     public CachedMessage putMessage(Message m) {
-        if (!cache.containsKey(m.getGuild().getIdLong())) {
-            cache.put(m.getGuild().getIdLong(), new FixedCache<>(SIZE));
+        return put(m, false);
+    }
+
+    /**
+     * Caches a message that was edited, replacing the cached version of it
+     * @param m The message
+     * @return The cached version of the message from before the edit, which is looked up on disk if it isn't in
+     * memory, or null if it wasn't cached
+     */
+    public CachedMessage updateMessage(Message m) {
+        return put(m, true);
+    }
+
+    private CachedMessage put(Message m, boolean edited) {
+        List<CachedAttachment> attachments = new ArrayList<>(m.getAttachments().size());
+        m.getAttachments().forEach(attachment -> attachments.add(new CachedAttachment(attachment.getUrl(), attachment.getFileName())));
+        byte[] encoded = MessageCodec.encode(m.getAuthor().getName(), m.getAuthor().getDiscriminator(), attachments, m.getContentRaw());
+
+        long guildId = m.getGuild().getIdLong();
+        CachedMessage previous = guilds.computeIfAbsent(guildId, id -> new GuildMessages(id, bytes)).put(m.getIdLong(), m.getAuthor().getIdLong(), m.getChannel().getIdLong(), encoded);
+        if (messageLog != null) {
+            // A message that was just sent can't be on disk yet
+            if (previous == null && edited) {
+                previous = messageLog.find(m.getIdLong());
+            }
+
+            messageLog.put(guildId, m.getIdLong(), m.getAuthor().getIdLong(), m.getChannel().getIdLong(), encoded);
+        }
+
+        if (bytes.get() > budget) {
+            evict();
         }
 
-        return cache.get(m.getGuild().getIdLong()).put(m.getIdLong(), new CachedMessage(m));
+        return previous;
     }
 
     public CachedMessage pullMessage(Guild guild, long messageId) {
-        if (!cache.containsKey(guild.getIdLong())) {
-            return null;
+        GuildMessages messages = guilds.get(guild.getIdLong());
+        CachedMessage cached = messages == null ? null : messages.remove(messageId);
+        if (messageLog != null) {
+            CachedMessage logged = messageLog.remove(messageId, cached != null);
+            if (cached == null) {
+                cached = logged;
+            }
         }
 
-        return cache.get(guild.getIdLong()).pull(messageId);
+        return cached;
     }
 
     public List<CachedMessage> getMessages(Guild guild, Predicate<CachedMessage> predicate) {
-        if (!cache.containsKey(guild.getIdLong())) {
-            return Collections.EMPTY_LIST;
+        GuildMessages messages = guilds.get(guild.getIdLong());
+        return messages == null ? Collections.emptyList() : messages.find(predicate);
+    }
+
+    /**
+     * Gets the recent messages of an author, only going through the messages of that author
+     * @param guild The guild
+     * @param authorId The ID of the author
+     * @param since The time to get messages from
+     * @return The cached messages the author sent since then, oldest first
+     */
+    public List<CachedMessage> getMessagesByAuthor(Guild guild, long authorId, OffsetDateTime since) {
+        GuildMessages messages = guilds.get(guild.getIdLong());
+        return messages == null ? Collections.emptyList() : messages.byAuthor(authorId, TimeUtil.getDiscordTimestamp(since.toInstant().toEpochMilli()));
+    }
+
+    /**
+     * Gets the IDs of the recent messages of an author, ready to be bulk deleted per channel
+     * @param guild The guild
+     * @param authorId The ID of the author
+     * @param since The time to get messages from
+     * @return The IDs of the cached messages the author sent since then, by the ID of their channel, oldest first
+     */
+    public Map<Long, List<Long>> getMessageIdsByAuthor(Guild guild, long authorId, OffsetDateTime since) {
+        GuildMessages messages = guilds.get(guild.getIdLong());
+        return messages == null ? Collections.emptyMap() : messages.idsByAuthor(authorId, TimeUtil.getDiscordTimestamp(since.toInstant().toEpochMilli()));
+    }
+
+    /**
+     * Gets the newest messages of a channel, only going through the messages of that channel
+     * @param guild The guild
+     * @param channelId The ID of the channel
+     * @param limit The maximum amount of messages
+     * @return The newest cached messages in the channel, oldest first
+     */
+    public List<CachedMessage> getMessagesInChannel(Guild guild, long channelId, int limit) {
+        GuildMessages messages = guilds.get(guild.getIdLong());
+        return messages == null ? Collections.emptyList() : messages.byChannel(channelId, limit);
+    }
+
+    /**
+     * Brings the cache back under 7/8 of its budget. The limit every guild is trimmed to is picked so that guilds under
+     * it keep everything, and the guilds over it share what is left equally.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
         }
 
-        return cache.get(guild.getIdLong()).getValues().stream().filter(predicate).collect(Collectors.toList());
+        try {
+            List<GuildMessages> stores = new ArrayList<>(guilds.values());
+            long[] usage = new long[stores.size()];
+            for (int i = 0; i < usage.length; i++) {
+                usage[i] = stores.get(i).bytes();
+            }
+
+            long[] sorted = usage.clone();
+            Arrays.sort(sorted);
+            long remaining = budget - budget / 8;
+            long limit = Long.MAX_VALUE;
+            for (int i = 0; i < sorted.length; i++) {
+                long sharing = sorted.length - i;
+                if (sorted[i] > remaining / sharing) {
+                    limit = remaining / sharing;
+                    break;
+                }
+
+                remaining -= sorted[i];
+            }
+
+            for (int i = 0; i < usage.length; i++) {
+                if (usage[i] > limit) {
+                    evicted.add(stores.get(i).trim(limit));
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return About how many bytes the cached messages take up
+     */
+    public long getBytes() {
+        return bytes.get();
     }
 
+    public int getSize() {
+        int size = 0;
+        for (GuildMessages messages : guilds.values()) {
+            size += messages.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The amount of messages that were dropped to stay under the budget
+     */
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    /**
+     * @return The amount of messages kept on disk, or -1 if the cache isn't kept on disk
+     */
+    public int getLoggedSize() {
+        return messageLog == null ? -1 : messageLog.size();
+    }
+
+    /**
+     * @return The amount of writes to disk that were dropped because too many were waiting
+     */
+    public long getLogDropped() {
+        return messageLog == null ? 0 : messageLog.getDropped();
+    }
+
+    /**
+     * An attachment of a cached message, reduced to what is needed to log it
+     */
+    public record CachedAttachment(String url, String fileName) {}
+
+    /**
+     * A message as it was cached. The parts that aren't IDs are only decoded when they are first asked for.
+     */
     public static class CachedMessage implements ISnowflake {
-        private final String content;
-        private final @Getter String username;
-        private final @Deprecated @Getter String discriminator;
         private final long id, author, channel, guild;
-        private final List<Attachment> attachments;
+        private final byte[] data;
+        private MessageCodec.Decoded decoded;
 
-        private CachedMessage(Message message) {
-            content = message.getContentRaw();
-            id = message.getIdLong();
-            author = message.getAuthor().getIdLong();
-            username = message.getAuthor().getName();
-            discriminator = message.getAuthor().getDiscriminator();
-            channel = message.getChannel().getIdLong();
-            guild = message.isFromGuild() ? message.getGuild().getIdLong() : 0L;
-            attachments = message.getAttachments();
+        CachedMessage(long id, long author, long channel, long guild, byte[] data) {
+            this.id = id;
+            this.author = author;
+            this.channel = channel;
+            this.guild = guild;
+            this.data = data;
         }
 
         public String getContentRaw() {
-            return content;
+            return decoded().content();
+        }
+
+        public List<CachedAttachment> getAttachments() {
+            return decoded().attachments();
+        }
+
+        public String getUsername() {
+            return decoded().username();
+        }
+
+        @Deprecated
+        public String getDiscriminator() {
+            return decoded().discriminator();
         }
 
-        public List<Attachment> getAttachments() {
-            return attachments;
+        int getEncodedLength() {
+            return data.length;
+        }
+
+        private MessageCodec.Decoded decoded() {
+            if (decoded == null) {
+                decoded = MessageCodec.decode(data);
+            }
+
+            return decoded;
         }
 
         public User getAuthor(JDA jda) {
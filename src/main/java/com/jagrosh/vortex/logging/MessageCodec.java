@@ -0,0 +1,184 @@
+package com.jagrosh.vortex.logging;
+
+import com.jagrosh.vortex.logging.MessageCache.CachedAttachment;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the parts of a cached message that aren't IDs into a single byte array. Strings are stored as UTF-8 with a
+ * varint length in front, and long content is deflated when that makes it smaller. The layout is
+ * <pre>
+ * flags (1 byte), discriminator (2 bytes, -1 if it isn't a number), username,
+ * attachment count (varint), then every attachment's url and file name,
+ * content, as the rest of the array (if compressed, the varint length of the UTF-8 bytes and then the deflated bytes)
+ * </pre>
+ */
+final class MessageCodec {
+    private static final int FLAG_COMPRESSED = 1;
+    private static final int COMPRESS_THRESHOLD = 256;
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private MessageCodec() {}
+
+    static byte[] encode(String username, String discriminator, List<CachedAttachment> attachments, String content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + content.length());
+        out.write(0);
+        int discrim = parseDiscriminator(discriminator);
+        out.write(discrim >>> 8);
+        out.write(discrim);
+        writeString(out, username);
+        writeVarint(out, attachments.size());
+        for (CachedAttachment attachment : attachments) {
+            writeString(out, attachment.url());
+            writeString(out, attachment.fileName());
+        }
+
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = raw.length >= COMPRESS_THRESHOLD ? deflate(raw) : null;
+        if (compressed == null) {
+            out.writeBytes(raw);
+            return out.toByteArray();
+        }
+
+        writeVarint(out, raw.length);
+        out.writeBytes(compressed);
+        byte[] encoded = out.toByteArray();
+        encoded[0] = FLAG_COMPRESSED;
+        return encoded;
+    }
+
+    static Decoded decode(byte[] data) {
+        Reader in = new Reader(data);
+        int flags = in.readByte();
+        short discrim = (short) ((in.readByte() << 8) | in.readByte());
+        String username = in.readString();
+        int count = in.readVarint();
+        List<CachedAttachment> attachments = count == 0 ? List.of() : new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            attachments.add(new CachedAttachment(in.readString(), in.readString()));
+        }
+
+        String content;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            int length = in.readVarint();
+            content = new String(inflate(data, in.pos, length), StandardCharsets.UTF_8);
+        } else {
+            content = new String(data, in.pos, data.length - in.pos, StandardCharsets.UTF_8);
+        }
+
+        return new Decoded(username, discrim < 0 ? "0" : String.format("%04d", discrim), attachments, content);
+    }
+
+    private static int parseDiscriminator(String discriminator) {
+        if (discriminator == null || discriminator.isEmpty() || discriminator.length() > 4) {
+            return -1;
+        }
+
+        for (int i = 0; i < discriminator.length(); i++) {
+            if (discriminator.charAt(i) < '0' || discriminator.charAt(i) > '9') {
+                return -1;
+            }
+        }
+
+        return Integer.parseInt(discriminator);
+    }
+
+    /**
+     * @return The deflated bytes, or null if deflating them doesn't make them smaller
+     */
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[raw.length];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+
+        return deflater.finished() && length < raw.length ? Arrays.copyOf(buffer, length) : null;
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data, offset, data.length - offset);
+        byte[] raw = new byte[length];
+        try {
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, length - read);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+
+                read += n;
+            }
+
+            if (read != length) {
+                throw new IllegalStateException("Cached message content was cut short");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Cached message content is corrupted", e);
+        }
+
+        return raw;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private int pos = 0;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        private int readByte() {
+            return data[pos++] & 0xFF;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private String readString() {
+            int length = readVarint();
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+
+    record Decoded(String username, String discriminator, List<CachedAttachment> attachments, String content) {}
+}
@@ -0,0 +1,388 @@
+package com.jagrosh.vortex.logging;
+
+import com.jagrosh.vortex.logging.MessageCache.CachedMessage;
+import com.jagrosh.vortex.utils.LongLongMap;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the message cache on disk, so edits and deletions of messages from before a restart can still be logged. Every
+ * cached message and every removal is appended to a log of fixed size segment files, which are memory-mapped, so the
+ * messages themselves stay out of the heap and are only read back when they are looked up. Only an index from message
+ * IDs to their place in the log is kept in memory. It is rebuilt on startup by scanning the segments, and the oldest
+ * segment is deleted once there are too many.
+ * <p>
+ * Writes happen on a background thread. If too many are waiting, new ones are dropped rather than holding up events.
+ * The index has its own lock, which is only held to look up or change entries and to copy a message out of a segment,
+ * so flushing segments to disk and dropping old ones never keeps lookups waiting. Only the writer thread writes to the
+ * segments, through its own view of the current one.
+ * <p>
+ * Every segment starts with a magic number and version, followed by records of
+ * <pre>
+ * type (1 byte), length of the rest of the record (4 bytes),
+ * PUT: guild, message, author and channel IDs (8 bytes each), then the encoded message
+ * REMOVE: message ID (8 bytes)
+ * </pre>
+ * The type is written last, after marking the end of the segment right behind the record, so a record that was cut
+ * short by a crash reads as the end of the segment, and what is left of it is never read as records later on.
+ */
+@Slf4j
+class MessageLog {
+    private static final int MAGIC = 0x564D4C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte END = 0, PUT = 1, REMOVE = 2;
+    private static final int PUT_FIXED = 32;
+    private static final long MISSING = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ThreadPoolExecutor writer;
+    private final Object lock = new Object();
+    private final TreeMap<Integer, MappedByteBuffer> segments = new TreeMap<>();
+    private final LongLongMap index = new LongLongMap();
+    private final LongAdder dropped = new LongAdder();
+    private MappedByteBuffer current;
+    private int currentSegment;
+
+    /**
+     * Opens the log and rebuilds its index from the segments that are already on disk
+     * @param config The {@code message-cache.log} config
+     * @throws UncheckedIOException If the log couldn't be opened
+     */
+    MessageLog(Config config) {
+        this.directory = Path.of(config.getString("directory"));
+        long size = config.getBytes("segment-size");
+        if (size < 1024 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Message log segments must be between 1KiB and 2GiB");
+        }
+
+        this.segmentSize = (int) size;
+        this.maxSegments = Math.max(2, config.getInt("segments"));
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.getInt("queue-size")), r -> {
+            Thread thread = new Thread(r, "message-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Files.createDirectories(directory);
+            long start = System.currentTimeMillis();
+            replay();
+            log.info("Loaded message log with " + index.size() + " messages in " + segments.size() + " segments in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the message log in " + directory, e);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "message-log-shutdown"));
+    }
+
+    /**
+     * Appends a message, replacing whatever version of it was logged before
+     */
+    void put(long guildId, long messageId, long authorId, long channelId, byte[] encoded) {
+        submit(() -> {
+            long position = append(PUT, PUT_FIXED + encoded.length, buffer -> {
+                buffer.putLong(guildId);
+                buffer.putLong(messageId);
+                buffer.putLong(authorId);
+                buffer.putLong(channelId);
+                buffer.put(encoded);
+            });
+            synchronized (lock) {
+                index.put(messageId, position, MISSING);
+            }
+        });
+    }
+
+    /**
+     * Removes a message, so it can't be found anymore
+     * @param messageId The ID of the message
+     * @param cached Whether the message was in the memory cache, in which case its put may still be waiting to be
+     *               written, so the removal is appended even if the message isn't in the index yet
+     * @return The logged version of the message, or null if it wasn't logged
+     */
+    CachedMessage remove(long messageId, boolean cached) {
+        CachedMessage message;
+        synchronized (lock) {
+            message = read(messageId);
+            if (message == null && !cached) {
+                return null;
+            }
+
+            index.remove(messageId, MISSING);
+        }
+
+        submit(() -> {
+            append(REMOVE, 8, buffer -> buffer.putLong(messageId));
+            synchronized (lock) {
+                index.remove(messageId, MISSING);
+            }
+        });
+        return message;
+    }
+
+    /**
+     * @return The logged version of a message, or null if it wasn't logged
+     */
+    CachedMessage find(long messageId) {
+        synchronized (lock) {
+            return read(messageId);
+        }
+    }
+
+    int size() {
+        synchronized (lock) {
+            return index.size();
+        }
+    }
+
+    /**
+     * @return The amount of writes that were dropped because too many were waiting
+     */
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Copies a message out of its segment, which only uses absolute reads, so it doesn't get in the way of the writer.
+     * Has to be called while holding the lock.
+     */
+    private CachedMessage read(long messageId) {
+        long position = index.get(messageId, MISSING);
+        if (position == MISSING) {
+            return null;
+        }
+
+        MappedByteBuffer segment = segments.get((int) (position >>> 32));
+        if (segment == null) {
+            return null;
+        }
+
+        int offset = (int) position;
+        int length = segment.getInt(offset + 1);
+        int base = offset + 5;
+        byte[] encoded = new byte[length - PUT_FIXED];
+        segment.get(base + PUT_FIXED, encoded);
+        return new CachedMessage(segment.getLong(base + 8), segment.getLong(base + 16), segment.getLong(base + 24), segment.getLong(base), encoded);
+    }
+
+    private void submit(Runnable write) {
+        try {
+            writer.execute(() -> {
+                try {
+                    write.run();
+                } catch (Exception e) {
+                    log.error("Error in writing to the message log", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Appends a record, moving on to a new segment if it doesn't fit in the current one. Only called on the writer thread.
+     * @return The position of the record, as the segment number in the high 32 bits and the offset in the low ones
+     */
+    private long append(byte type, int length, RecordWriter body) {
+        int total = 5 + length;
+        if (total > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("A record of " + total + " bytes doesn't fit in a segment");
+        }
+
+        if (current.remaining() < total) {
+            roll();
+        }
+
+        int offset = current.position();
+        current.position(offset + 1);
+        current.putInt(length);
+        body.write(current);
+        if (offset + total < segmentSize) {
+            current.put(offset + total, END);
+        }
+
+        current.put(offset, type);
+        return ((long) currentSegment << 32) | offset;
+    }
+
+    private void replay() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("\\d+\\.seg"))
+                    .forEach(name -> numbers.add(Integer.parseInt(name.substring(0, name.length() - 4))));
+        }
+
+        numbers.sort(null);
+        int end = HEADER_SIZE;
+        for (int number : numbers) {
+            MappedByteBuffer segment = map(number);
+            if (segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION) {
+                log.warn("Skipping message log segment " + number + ", which isn't a segment of this version");
+                continue;
+            }
+
+            synchronized (lock) {
+                segments.put(number, segment);
+            }
+
+            end = scan(number, segment, false);
+        }
+
+        if (segments.isEmpty()) {
+            currentSegment = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1) + 1;
+            current = create(currentSegment);
+        } else {
+            currentSegment = segments.lastKey();
+            current = segments.get(currentSegment).duplicate();
+            current.position(end);
+        }
+
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+    }
+
+    /**
+     * Goes through the records of a segment, adding them to the index, or when the segment is being dropped, removing
+     * the index entries that still point into it. The lock is only taken for every change to the index, not while
+     * reading the segment.
+     * @return The offset the segment ends at
+     */
+    private int scan(int number, MappedByteBuffer segment, boolean dropping) {
+        int offset = HEADER_SIZE;
+        while (offset + 5 <= segmentSize) {
+            byte type = segment.get(offset);
+            int length = segment.getInt(offset + 1);
+            if (type == END || length < 0 || offset + 5 + length > segmentSize) {
+                break;
+            }
+
+            long messageId = segment.getLong(offset + 5 + (type == PUT ? 8 : 0));
+            long position = ((long) number << 32) | offset;
+            synchronized (lock) {
+                if (dropping) {
+                    if (type == PUT && index.get(messageId, MISSING) == position) {
+                        index.remove(messageId, MISSING);
+                    }
+                } else if (type == PUT) {
+                    index.put(messageId, position, MISSING);
+                } else {
+                    index.remove(messageId, MISSING);
+                }
+            }
+
+            offset += 5 + length;
+        }
+
+        return offset;
+    }
+
+    private void roll() {
+        current.force();
+        try {
+            current = create(++currentSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int count;
+        synchronized (lock) {
+            count = segments.size();
+        }
+
+        if (count > maxSegments) {
+            dropOldest();
+        }
+    }
+
+    /**
+     * Creates a segment and adds it to the log
+     * @return The writer's view of the segment, positioned after the header
+     */
+    private MappedByteBuffer create(int number) throws IOException {
+        // A leftover file that wasn't a valid segment would otherwise show through after the new records
+        Files.deleteIfExists(path(number));
+        MappedByteBuffer segment = map(number);
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        synchronized (lock) {
+            segments.put(number, segment);
+        }
+
+        MappedByteBuffer view = segment.duplicate();
+        view.position(HEADER_SIZE);
+        return view;
+    }
+
+    /**
+     * Drops the oldest segment. Lookups of its messages find nothing as soon as it is taken out of the log, before its
+     * index entries are removed.
+     */
+    private void dropOldest() {
+        int oldest;
+        MappedByteBuffer segment;
+        synchronized (lock) {
+            oldest = segments.firstKey();
+            segment = segments.remove(oldest);
+        }
+
+        scan(oldest, segment, true);
+        try {
+            Files.deleteIfExists(path(oldest));
+        } catch (IOException e) {
+            log.warn("Could not delete message log segment " + oldest, e);
+        }
+    }
+
+    private MappedByteBuffer map(int number) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(number), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path path(int number) {
+        return directory.resolve(String.format("%010d.seg", number));
+    }
+
+    /**
+     * Writes whatever is still waiting, and flushes the current segment to disk. Writes after this are dropped.
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Gave up on " + writer.getQueue().size() + " message log writes on shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        current.force();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(MappedByteBuffer buffer);
+    }
+}
@@ -0,0 +1,232 @@
+package com.jagrosh.vortex.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable Aho-Corasick automaton over a fixed set of patterns. Building it is linear in the total length of the
+ * patterns, and scanning a text reports every (possibly overlapping) occurrence of every pattern in a single pass.
+ * Empty patterns are ignored, and callers are expected to handle them separately.
+ */
+public class AhoCorasick {
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    private final int[] patternLengths;
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final int[][] outputs;
+
+    /**
+     * Compiles an automaton for the given patterns. Pattern indexes reported while scanning match the indexes of this
+     * list.
+     * @param patterns The patterns to search for
+     */
+    public AhoCorasick(List<String> patterns) {
+        patternLengths = new int[patterns.size()];
+
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+
+        char[][] chars = new char[maxStates][];
+        int[][] targets = new int[maxStates][];
+        int[][] outs = new int[maxStates][];
+        int[] sizes = new int[maxStates];
+        int states = 1;
+
+        // build the trie
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            patternLengths[p] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = -1;
+                for (int e = 0; e < sizes[state]; e++) {
+                    if (chars[state][e] == c) {
+                        next = targets[state][e];
+                        break;
+                    }
+                }
+
+                if (next == -1) {
+                    next = states++;
+                    if (chars[state] == null) {
+                        chars[state] = new char[2];
+                        targets[state] = new int[2];
+                    } else if (sizes[state] == chars[state].length) {
+                        chars[state] = Arrays.copyOf(chars[state], sizes[state] * 2);
+                        targets[state] = Arrays.copyOf(targets[state], sizes[state] * 2);
+                    }
+
+                    chars[state][sizes[state]] = c;
+                    targets[state][sizes[state]] = next;
+                    sizes[state]++;
+                }
+
+                state = next;
+            }
+
+            outs[state] = append(outs[state], p);
+        }
+
+        edgeChars = new char[states][];
+        edgeTargets = new int[states][];
+        fail = new int[states];
+        outputs = new int[states][];
+
+        // sort the edges of every state so that transitions can be binary searched
+        for (int s = 0; s < states; s++) {
+            int size = sizes[s];
+            char[] c = size == 0 ? new char[0] : Arrays.copyOf(chars[s], size);
+            int[] t = size == 0 ? new int[0] : Arrays.copyOf(targets[s], size);
+            for (int i = 1; i < size; i++) {
+                for (int j = i; j > 0 && c[j - 1] > c[j]; j--) {
+                    char tc = c[j]; c[j] = c[j - 1]; c[j - 1] = tc;
+                    int tt = t[j]; t[j] = t[j - 1]; t[j - 1] = tt;
+                }
+            }
+
+            edgeChars[s] = c;
+            edgeTargets[s] = t;
+            outputs[s] = outs[s] == null ? NO_OUTPUTS : outs[s];
+        }
+
+        // breadth-first to compute failure links and merge the outputs of every suffix state
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            queue.add(target);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int child = edgeTargets[state][i];
+                int f = fail[state];
+                while (f != 0 && transition(f, c) == -1) {
+                    f = fail[f];
+                }
+
+                int next = transition(f, c);
+                fail[child] = next == -1 ? 0 : next;
+                if (outputs[fail[child]].length != 0) {
+                    outputs[child] = merge(outputs[child], outputs[fail[child]]);
+                }
+
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return The number of patterns this automaton was built with, including empty ones
+     */
+    public int size() {
+        return patternLengths.length;
+    }
+
+    /**
+     * @param pattern The index of a pattern
+     * @return The length of that pattern
+     */
+    public int patternLength(int pattern) {
+        return patternLengths[pattern];
+    }
+
+    /**
+     * Scans the provided text once, reporting every occurrence of every pattern in the order their ends are found.
+     * @param text The text to scan
+     * @param listener The listener to report matches to. Returning true from it stops the scan early.
+     * @return True if the scan was stopped by the listener
+     */
+    public boolean scan(CharSequence text, MatchListener listener) {
+        return scan(text, false, listener);
+    }
+
+    /**
+     * Scans the provided text once, reporting every occurrence of every pattern in the order their ends are found.
+     * @param text The text to scan
+     * @param lowerCase If every character of the text should be passed through {@link Character#toLowerCase(char)}
+     * before being matched, which avoids lowercasing the whole text beforehand
+     * @param listener The listener to report matches to. Returning true from it stops the scan early.
+     * @return True if the scan was stopped by the listener
+     */
+    public boolean scan(CharSequence text, boolean lowerCase, MatchListener listener) {
+        if (edgeChars[0].length == 0) {
+            return false;
+        }
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = lowerCase ? Character.toLowerCase(text.charAt(i)) : text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) == -1 && state != 0) {
+                state = fail[state];
+            }
+
+            state = next == -1 ? 0 : next;
+            for (int pattern : outputs[state]) {
+                if (listener.onMatch(pattern, i + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private int transition(int state, char c) {
+        char[] chars = edgeChars[state];
+        int size = chars.length;
+        if (size <= 8) {
+            for (int i = 0; i < size; i++) {
+                if (chars[i] == c) {
+                    return edgeTargets[state][i];
+                }
+            }
+
+            return -1;
+        }
+
+        int index = Arrays.binarySearch(chars, c);
+        return index < 0 ? -1 : edgeTargets[state][index];
+    }
+
+    private static int[] append(int[] array, int value) {
+        if (array == null) {
+            return new int[]{value};
+        }
+
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Receives matches found while scanning
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+        /**
+         * @param pattern The index of the pattern that was found
+         * @param end The index in the text directly after the last character of the match
+         * @return True to stop scanning
+         */
+        boolean onMatch(int pattern, int end);
+    }
+}
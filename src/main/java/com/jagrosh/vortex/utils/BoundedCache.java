@@ -0,0 +1,396 @@
+package com.jagrosh.vortex.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe cache that evicts its least recently used entries once it holds too many of them, or once their total
+ * weight gets too high. Entries can also expire a while after they were written. The cache is split into segments by
+ * the hash of the key, each with its own lock and an equal share of the limit, so lookups for different keys rarely
+ * wait on each other. Small caches only have one segment, so they evict in exact LRU order.
+ * <p>
+ * Every cache counts its hits, misses, evictions and expirations. Caches that are built with a name are registered, so
+ * their statistics can be listed with {@link #getRegistered()}.
+ * @param <K> The type of the keys
+ * @param <V> The type of the values, which can't be null
+ */
+public class BoundedCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_WEIGHT = 256;
+    private static final List<BoundedCache<?, ?>> REGISTERED = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maximumWeight, expireAfterWrite;
+    private final LongSupplier ticker;
+    private final Segment<K, V>[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    private BoundedCache(Builder<K, V> builder) {
+        this.name = builder.name;
+        this.weigher = builder.weigher;
+        this.maximumWeight = builder.maximumWeight;
+        this.expireAfterWrite = builder.expireAfterWrite;
+        this.ticker = builder.ticker;
+
+        int count = 1;
+        while (count < MAX_SEGMENTS && maximumWeight / (count * 2L) >= MIN_SEGMENT_WEIGHT) {
+            count *= 2;
+        }
+
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // The remainder goes to the first segments, so the shares add up to the limit exactly
+            segments[i] = new Segment<>(maximumWeight / count + (i < maximumWeight % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @return A builder for a cache that isn't registered
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>(null);
+    }
+
+    /**
+     * @param name The name the cache is listed with in {@link #getRegistered()}
+     * @return A builder for a registered cache
+     */
+    public static <K, V> Builder<K, V> builder(String name) {
+        return new Builder<>(Objects.requireNonNull(name));
+    }
+
+    /**
+     * @return Every cache that was built with a name, in the order they were built
+     */
+    public static List<BoundedCache<?, ?>> getRegistered() {
+        return Collections.unmodifiableList(REGISTERED);
+    }
+
+    /**
+     * Gets a value and marks it as recently used
+     * @param key The key
+     * @return The value, or null if there is none or it expired
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            value = entry == null ? null : live(segment, key, entry);
+        }
+
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    /**
+     * Checks whether there is a value for a key, without counting a hit or miss or marking it as recently used
+     * @param key The key
+     * @return True if there is a value that hasn't expired
+     */
+    public boolean contains(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            return entry != null && live(segment, key, entry) != null;
+        }
+    }
+
+    /**
+     * Puts a value, replacing whatever value the key had, and evicts the least recently used entries if the cache went
+     * over its limit. A value that is heavier than a segment's share of the limit is not kept at all.
+     * @param key The key
+     * @param value The value
+     * @return The value the key had before, or null if there was none or it expired
+     */
+    public V put(K key, V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Puts a value only if the key has no value yet
+     * @param key The key
+     * @param value The value
+     * @return The value the key already had, in which case nothing was changed, or null if the value was put
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, false);
+    }
+
+    private V put(K key, V value, boolean replace) {
+        Objects.requireNonNull(value, "Cached values can't be null");
+        long weight = weigher == null ? 1 : weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weights can't be negative");
+        }
+
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> old = segment.map.get(key);
+            V previous = old == null ? null : live(segment, key, old);
+            if (previous != null && !replace) {
+                return previous;
+            }
+
+            if (previous != null) {
+                segment.map.remove(key);
+                segment.weight -= old.weight;
+            }
+
+            if (weight > segment.maximumWeight) {
+                evictions.increment();
+                return previous;
+            }
+
+            segment.map.put(key, new Entry<>(value, weight, ticker.getAsLong()));
+            segment.weight += weight;
+            Iterator<Entry<V>> it = segment.map.values().iterator();
+            while (segment.weight > segment.maximumWeight) {
+                Entry<V> eldest = it.next();
+                it.remove();
+                segment.weight -= eldest.weight;
+                evictions.increment();
+            }
+
+            return previous;
+        }
+    }
+
+    /**
+     * Removes a value
+     * @param key The key
+     * @return The value that was removed, or null if there was none or it expired
+     */
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            if (entry == null || live(segment, key, entry) == null) {
+                return null;
+            }
+
+            segment.map.remove(key);
+            segment.weight -= entry.weight;
+            return entry.value;
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * @return A copy of every value that hasn't expired, which doesn't count as using them
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        long now = ticker.getAsLong();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (Entry<V> entry : segment.map.values()) {
+                    if (!isExpired(entry, now)) {
+                        values.add(entry.value);
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * @return The amount of entries, including ones that expired but weren't removed yet
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The total weight of the entries, which is the same as {@link #size()} if the cache has no weigher
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+
+        return weight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The amount of entries that were removed to stay under the limit
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The amount of entries that were removed because they expired
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return The share of lookups that were hits, or 0 if nothing was looked up yet
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return The value of an entry, or null if it expired, in which case it is removed
+     */
+    private V live(Segment<K, V> segment, K key, Entry<V> entry) {
+        if (!isExpired(entry, ticker.getAsLong())) {
+            return entry.value;
+        }
+
+        segment.map.remove(key);
+        segment.weight -= entry.weight;
+        expirations.increment();
+        return null;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return expireAfterWrite > 0 && now - entry.written >= expireAfterWrite;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Works out how heavy an entry is, such as the amount of elements in a cached list
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    public static class Builder<K, V> {
+        private final String name;
+        private Weigher<? super K, ? super V> weigher = null;
+        private long maximumWeight = -1, expireAfterWrite = 0;
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param maximumSize The maximum amount of entries
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            if (weigher != null) {
+                throw new IllegalStateException("A cache can't have both a maximum size and a maximum weight");
+            }
+
+            this.maximumWeight = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight The maximum total weight of the entries
+         * @param weigher What works out the weight of every entry
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+            this.maximumWeight = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        /**
+         * @param duration How long entries are kept after they were written
+         * @param unit The unit of the duration
+         */
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("Entries must be kept for some time");
+            }
+
+            this.expireAfterWrite = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param ticker The clock to expire entries by, in nanoseconds, such as a fake clock in tests
+         */
+        public Builder<K, V> ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker);
+            return this;
+        }
+
+        public BoundedCache<K, V> build() {
+            if (maximumWeight < 1) {
+                throw new IllegalArgumentException("Cache must have a maximum size or weight of at least 1");
+            }
+
+            BoundedCache<K, V> cache = new BoundedCache<>(this);
+            if (name != null) {
+                REGISTERED.add(cache);
+            }
+
+            return cache;
+        }
+    }
+
+    private static class Segment<K, V> {
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maximumWeight;
+        private long weight = 0;
+
+        private Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+    }
+
+    private record Entry<V>(V value, long weight, long written) {}
+}
@@ -0,0 +1,113 @@
+package com.jagrosh.vortex.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Runs user provided regexes with a budget, so that a pathological pattern (eg. {@code (a+)+b}) can't stall the thread
+ * it runs on. The text is wrapped in a {@link CharSequence} that counts every character the regex engine reads, and
+ * matching is aborted with a {@link BudgetExceededException} once either the step budget or the time budget runs out.
+ */
+public class BoundedRegex {
+    public static final long DEFAULT_MAX_STEPS = 1_000_000;
+    public static final long DEFAULT_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private BoundedRegex() {}
+
+    /**
+     * Checks if the pattern can be found anywhere in the text, using the default budget
+     * @throws BudgetExceededException If the default budget was exceeded
+     */
+    public static boolean find(Pattern pattern, CharSequence text) throws BudgetExceededException {
+        return find(pattern, text, DEFAULT_MAX_STEPS, DEFAULT_MAX_NANOS);
+    }
+
+    /**
+     * Checks if the pattern can be found anywhere in the text
+     * @param maxSteps The maximum amount of characters the regex engine may read
+     * @param maxNanos The maximum amount of time the match may take
+     * @throws BudgetExceededException If the budget was exceeded
+     */
+    public static boolean find(Pattern pattern, CharSequence text, long maxSteps, long maxNanos) throws BudgetExceededException {
+        return pattern.matcher(new Budgeted(text, new Budget(maxSteps, maxNanos))).find();
+    }
+
+    /**
+     * Checks if the pattern matches the entire text, using the default budget
+     * @throws BudgetExceededException If the default budget was exceeded
+     */
+    public static boolean matches(Pattern pattern, CharSequence text) throws BudgetExceededException {
+        return matches(pattern, text, DEFAULT_MAX_STEPS, DEFAULT_MAX_NANOS);
+    }
+
+    /**
+     * Checks if the pattern matches the entire text
+     * @param maxSteps The maximum amount of characters the regex engine may read
+     * @param maxNanos The maximum amount of time the match may take
+     * @throws BudgetExceededException If the budget was exceeded
+     */
+    public static boolean matches(Pattern pattern, CharSequence text, long maxSteps, long maxNanos) throws BudgetExceededException {
+        return pattern.matcher(new Budgeted(text, new Budget(maxSteps, maxNanos))).matches();
+    }
+
+    private static class Budget {
+        private final long deadline;
+        private long stepsLeft;
+
+        private Budget(long maxSteps, long maxNanos) {
+            this.stepsLeft = maxSteps;
+            this.deadline = System.nanoTime() + maxNanos;
+        }
+
+        private void step() {
+            if (--stepsLeft < 0) {
+                throw new BudgetExceededException("Regex exceeded its step budget");
+            }
+
+            if (stepsLeft % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                throw new BudgetExceededException("Regex exceeded its time budget");
+            }
+        }
+    }
+
+    private static class Budgeted implements CharSequence {
+        private final CharSequence text;
+        private final Budget budget;
+
+        private Budgeted(CharSequence text, Budget budget) {
+            this.text = text;
+            this.budget = budget;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            budget.step();
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Budgeted(text.subSequence(start, end), budget);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * Thrown when a regex used more than its budget
+     */
+    public static class BudgetExceededException extends RuntimeException {
+        public BudgetExceededException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
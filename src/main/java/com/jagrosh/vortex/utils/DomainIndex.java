@@ -0,0 +1,94 @@
+package com.jagrosh.vortex.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable set of domains that can be queried with a host, matching if either the host itself or any domain it is a
+ * subdomain of is in the set. For example, an index containing {@code example.com} matches {@code example.com} and
+ * {@code www.example.com}, but not {@code notexample.com}. A query takes one hash lookup per label of the host.
+ */
+public class DomainIndex {
+    public static final DomainIndex EMPTY = new DomainIndex(new String[0]);
+
+    private final Set<String> domains;
+
+    /**
+     * Creates a {@link DomainIndex}
+     * @param domains The domains in the index, which are matched case-insensitively
+     */
+    public DomainIndex(String[] domains) {
+        this.domains = new HashSet<>(domains.length * 2);
+        for (String domain : domains) {
+            String normalized = normalize(domain);
+            if (!normalized.isEmpty()) {
+                this.domains.add(normalized);
+            }
+        }
+    }
+
+    /**
+     * Checks if the host, or any domain the host is a subdomain of, is in the index
+     * @param host The host, such as {@code www.example.com}
+     * @return True if the host matches
+     */
+    public boolean matches(String host) {
+        if (host == null) {
+            return false;
+        }
+
+        String normalized = normalize(host);
+        int start = 0;
+        while (true) {
+            if (domains.contains(normalized.substring(start))) {
+                return true;
+            }
+
+            int dot = normalized.indexOf('.', start);
+            if (dot == -1) {
+                return false;
+            }
+
+            start = dot + 1;
+        }
+    }
+
+    /**
+     * Checks if exactly this domain is in the index
+     * @param domain The domain
+     * @return True if the domain is in the index
+     */
+    public boolean contains(String domain) {
+        return domain != null && domains.contains(normalize(domain));
+    }
+
+    public int size() {
+        return domains.size();
+    }
+
+    /**
+     * Gets the host of a url, such as {@code www.example.com} for {@code https://www.example.com:443/path?query}
+     * @param url The url
+     * @return The lowercase host, or an empty string if the url doesn't have one
+     */
+    public static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start == -1 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#:".indexOf(url.charAt(end)) == -1 && !Character.isWhitespace(url.charAt(end))) {
+            end++;
+        }
+
+        int userInfo = url.lastIndexOf('@', end - 1);
+        if (userInfo >= start) {
+            start = userInfo + 1;
+        }
+
+        return normalize(url.substring(start, end));
+    }
+
+    private static String normalize(String domain) {
+        String normalized = domain.trim().toLowerCase();
+        return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+}
@@ -100,7 +100,7 @@ public class FormatUtil {
 
     public static String formatMessage(CachedMessage m) {
         StringBuilder sb = new StringBuilder(m.getContentRaw());
-        m.getAttachments().forEach(att -> sb.append("\n").append(att.getUrl()));
+        m.getAttachments().forEach(att -> sb.append("\n").append(att.url()));
         return sb.length() > 2048 ? sb.toString().substring(0, 2040) : sb.toString();
     }
 
@@ -0,0 +1,108 @@
+package com.jagrosh.vortex.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs tasks on a fixed amount of single threaded lanes, picking the lane from a key. Tasks with the same key always
+ * run in the order they were submitted, while tasks with different keys can run in parallel. Every lane has a bounded
+ * queue, and tasks submitted to a full lane are dropped rather than blocking the submitting thread.
+ */
+@Slf4j
+public class LaneExecutor {
+    private static final long SHED_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
+    private final String name;
+    private final ThreadPoolExecutor[] lanes;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private volatile long lastShedLog = System.nanoTime() - SHED_LOG_INTERVAL;
+
+    /**
+     * Creates a {@link LaneExecutor}
+     * @param name The name of the lanes, used for naming threads
+     * @param lanes The amount of lanes
+     * @param queueSize The maximum amount of tasks that can be waiting in a single lane
+     */
+    public LaneExecutor(String name, int lanes, int queueSize) {
+        if (lanes < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("There must be at least one lane with room for at least one task");
+        }
+
+        this.name = name;
+        this.lanes = new ThreadPoolExecutor[lanes];
+        for (int i = 0; i < lanes; i++) {
+            String threadName = name + "-" + i;
+            this.lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Queues a task on the lane of the key
+     * @param key The key that decides the lane, such as a guild ID
+     * @param task The task to run
+     * @return True if the task was queued, false if the lane was full and the task was dropped
+     */
+    public boolean execute(long key, Runnable task) {
+        try {
+            lanes[laneOf(key)].execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Uncaught exception in " + name + " lane", e);
+                } finally {
+                    executed.increment();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            shed.increment();
+            long now = System.nanoTime();
+            if (now - lastShedLog > SHED_LOG_INTERVAL) {
+                lastShedLog = now;
+                log.warn("The " + name + " lanes are overloaded, " + shed.sum() + " tasks have been dropped so far");
+            }
+
+            return false;
+        }
+    }
+
+    private int laneOf(long key) {
+        // Snowflakes share most of their low bits, so they get mixed before picking a lane
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(mixed ^ (mixed >>> 32), lanes.length);
+    }
+
+    /**
+     * @return The amount of tasks currently waiting across all lanes
+     */
+    public int getQueued() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+
+        return queued;
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getShed() {
+        return shed.sum();
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+}
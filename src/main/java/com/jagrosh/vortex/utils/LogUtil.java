@@ -85,7 +85,7 @@ public class LogUtil {
         }
 
         sb.append(") : ").append(m.getContentRaw());
-        m.getAttachments().forEach(att -> sb.append("\n").append(att.getUrl()));
+        m.getAttachments().forEach(att -> sb.append("\n").append(att.url()));
     }
 
     // Audit logging formats
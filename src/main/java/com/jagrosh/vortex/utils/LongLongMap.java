@@ -0,0 +1,198 @@
+package com.jagrosh.vortex.utils;
+
+/**
+ * A map from snowflakes to longs, as an open addressing hash table of primitives, so it doesn't box its keys or values
+ * or allocate an entry per mapping. The key 0 can't be used, which no snowflake is. Not thread-safe.
+ */
+public class LongLongMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size = 0;
+
+    public LongLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected The amount of mappings to make room for
+     */
+    public LongLongMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expected * 4) {
+            capacity *= 2;
+        }
+
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * @param key The key
+     * @param missing What to return if the key has no value
+     * @return The value of the key, or {@code missing} if it has none
+     */
+    public long get(long key, long missing) {
+        if (key == 0) {
+            return missing;
+        }
+
+        int slot = slotOf(key);
+        return keys[slot] == key ? values[slot] : missing;
+    }
+
+    public boolean containsKey(long key) {
+        return key != 0 && keys[slotOf(key)] == key;
+    }
+
+    /**
+     * @param key The key, which can't be 0
+     * @param value The value
+     * @param missing What to return if the key had no value
+     * @return The value the key had before, or {@code missing} if it had none
+     */
+    public long put(long key, long value, long missing) {
+        if (key == 0) {
+            throw new IllegalArgumentException("The key 0 can't be used");
+        }
+
+        int slot = slotOf(key);
+        if (keys[slot] == key) {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        if ((size + 1) * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+            slot = slotOf(key);
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return missing;
+    }
+
+    /**
+     * @param key The key
+     * @param missing What to return if the key had no value
+     * @return The value that was removed, or {@code missing} if the key had none
+     */
+    public long remove(long key, long missing) {
+        if (key == 0) {
+            return missing;
+        }
+
+        int slot = slotOf(key);
+        if (keys[slot] != key) {
+            return missing;
+        }
+
+        long removed = values[slot];
+
+        // Shift the entries after the removed one back, so lookups don't stop early at the hole
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+
+        keys[hole] = 0;
+        values[hole] = 0;
+        size--;
+        if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+            rehash(keys.length / 2);
+        }
+
+        return removed;
+    }
+
+    /**
+     * Removes every mapping that matches a predicate
+     * @param predicate The predicate, given the key and value of every mapping
+     * @return The amount of mappings that were removed
+     */
+    public int removeIf(LongLongPredicate predicate) {
+        // Rebuilding the table is simpler than shifting entries back while walking it
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        int oldSize = size;
+        keys = new long[oldKeys.length];
+        values = new long[oldKeys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && !predicate.test(oldKeys[i], oldValues[i])) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+
+        int capacity = keys.length;
+        while (capacity > MIN_CAPACITY && size * 8 < capacity) {
+            capacity /= 2;
+        }
+
+        if (capacity != keys.length) {
+            rehash(capacity);
+        }
+
+        return oldSize - size;
+    }
+
+    public void clear() {
+        keys = new long[MIN_CAPACITY];
+        values = new long[MIN_CAPACITY];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The slot of the key, or the empty slot it would go in
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private int home(long key) {
+        // Snowflakes share most of their low bits, so they get mixed before picking a slot
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & (keys.length - 1);
+    }
+
+    @FunctionalInterface
+    public interface LongLongPredicate {
+        boolean test(long key, long value);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.jagrosh.vortex.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.LongStream;
+
+/**
+ * An immutable set of snowflakes, as a sorted array of primitives, so checking whether it contains one is a binary
+ * search that doesn't box or allocate. Changes return a new set, which makes it safe to share between threads and to
+ * swap in for an older version of the set.
+ */
+public final class LongSet {
+    public static final LongSet EMPTY = new LongSet(new long[0]);
+
+    private final long[] values;
+
+    private LongSet(long[] sorted) {
+        this.values = sorted;
+    }
+
+    /**
+     * @param values The values, in any order and possibly with duplicates
+     * @return A set of the values
+     */
+    public static LongSet of(Collection<Long> values) {
+        return of(values.stream().mapToLong(Long::longValue));
+    }
+
+    private static LongSet of(LongStream values) {
+        long[] sorted = values.sorted().distinct().toArray();
+        return sorted.length == 0 ? EMPTY : new LongSet(sorted);
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    /**
+     * @return A set with the value added, or this set if it already contains it
+     */
+    public LongSet with(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return this;
+        }
+
+        int insert = -index - 1;
+        long[] added = new long[values.length + 1];
+        System.arraycopy(values, 0, added, 0, insert);
+        added[insert] = value;
+        System.arraycopy(values, insert, added, insert + 1, values.length - insert);
+        return new LongSet(added);
+    }
+
+    /**
+     * @return A set with the value removed, or this set if it doesn't contain it
+     */
+    public LongSet without(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return this;
+        }
+
+        if (values.length == 1) {
+            return EMPTY;
+        }
+
+        long[] removed = new long[values.length - 1];
+        System.arraycopy(values, 0, removed, 0, index);
+        System.arraycopy(values, index + 1, removed, index, values.length - index - 1);
+        return new LongSet(removed);
+    }
+
+    /**
+     * @return A set with all the values added
+     */
+    public LongSet withAll(Collection<Long> added) {
+        return added.isEmpty() ? this : of(LongStream.concat(stream(), added.stream().mapToLong(Long::longValue)));
+    }
+
+    /**
+     * @return A set with all the values removed
+     */
+    public LongSet withoutAll(Collection<Long> removed) {
+        LongSet remove = of(removed);
+        return remove.isEmpty() ? this : of(stream().filter(value -> !remove.contains(value)));
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * @return The values in ascending order
+     */
+    public LongStream stream() {
+        return Arrays.stream(values);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof LongSet && Arrays.equals(values, ((LongSet) obj).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -47,12 +47,28 @@ public class OtherUtil {
     public final static String DEHOIST_JOINED = "`" + FormatUtil.join("`, `", DEHOIST_ORIGINAL) + "`";
 
     public static boolean dehoist(Member m, char symbol) {
-        if (!m.getGuild().getSelfMember().canInteract(m)) {
+        String newname = dehoistedName(m, symbol);
+        if (newname == null) {
             return false;
         }
 
+        m.getGuild().modifyNickname(m, newname).reason("Dehoisting").queue();
+        return true;
+    }
+
+    /**
+     * Works out what a member should be renamed to when dehoisting
+     * @param m The member
+     * @param symbol The lowest symbol that counts as a hoist
+     * @return The new name, or null if the member isn't hoisted or can't be renamed
+     */
+    public static String dehoistedName(Member m, char symbol) {
+        if (!m.getGuild().getSelfMember().canInteract(m)) {
+            return null;
+        }
+
         if (m.getEffectiveName().charAt(0) > symbol) {
-            return false;
+            return null;
         }
 
         String newname = m.getEffectiveName();
@@ -63,8 +79,7 @@ public class OtherUtil {
             }
         }
 
-        m.getGuild().modifyNickname(m, newname).reason("Dehoisting").queue();
-        return true;
+        return newname;
     }
 
     // TODO: Potentially add CommandEvent#replyInDm(MessageCreateData,Consumer<Message>,Consumer<Throwable>) to chewtills
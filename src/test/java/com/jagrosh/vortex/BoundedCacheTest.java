@@ -0,0 +1,124 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.utils.BoundedCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BoundedCacheTest {
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>builder().maximumSize(3).build();
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        Assertions.assertEquals("a", cache.get(1));
+        cache.put(4, "d");
+
+        Assertions.assertNull(cache.get(2));
+        Assertions.assertEquals("a", cache.get(1));
+        Assertions.assertEquals("c", cache.get(3));
+        Assertions.assertEquals("d", cache.get(4));
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void testPutAndRemove() {
+        BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>builder().maximumSize(10).build();
+        Assertions.assertNull(cache.put(1, "a"));
+        Assertions.assertEquals("a", cache.put(1, "b"));
+        Assertions.assertEquals("b", cache.putIfAbsent(1, "c"));
+        Assertions.assertEquals("b", cache.get(1));
+        Assertions.assertNull(cache.putIfAbsent(2, "d"));
+        Assertions.assertTrue(cache.contains(2));
+
+        Assertions.assertEquals("b", cache.remove(1));
+        Assertions.assertNull(cache.remove(1));
+        Assertions.assertFalse(cache.contains(1));
+        Assertions.assertEquals(List.of("d"), cache.values());
+        Assertions.assertThrows(NullPointerException.class, () -> cache.put(3, null));
+    }
+
+    @Test
+    void testStatistics() {
+        BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>builder().maximumSize(10).build();
+        cache.put(1, "a");
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        cache.contains(2);
+
+        Assertions.assertEquals(2, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testExpireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>builder().maximumSize(10).expireAfterWrite(10, TimeUnit.SECONDS).ticker(now::get).build();
+        cache.put(1, "a");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        cache.put(2, "b");
+        Assertions.assertEquals("a", cache.get(1));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        Assertions.assertNull(cache.get(1));
+        Assertions.assertEquals("b", cache.get(2));
+        Assertions.assertEquals(List.of("b"), cache.values());
+        Assertions.assertEquals(1, cache.getExpirations());
+
+        // Writing again restarts the clock of an entry
+        cache.put(2, "c");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        Assertions.assertEquals("c", cache.get(2));
+    }
+
+    @Test
+    void testMaximumWeight() {
+        BoundedCache<Integer, List<Integer>> cache = BoundedCache.<Integer, List<Integer>>builder().maximumWeight(10, (key, value) -> value.size()).build();
+        cache.put(1, List.of(1, 2, 3, 4));
+        cache.put(2, List.of(1, 2, 3, 4));
+        Assertions.assertEquals(8, cache.weight());
+
+        cache.put(3, List.of(1, 2, 3));
+        Assertions.assertNull(cache.get(1));
+        Assertions.assertEquals(7, cache.weight());
+
+        // Values heavier than the whole cache aren't kept, and don't push anything else out
+        cache.put(4, List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11));
+        Assertions.assertNull(cache.get(4));
+        Assertions.assertNotNull(cache.get(2));
+        Assertions.assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void testConcurrentPutsStayBounded() throws InterruptedException {
+        BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>builder().maximumSize(5000).build();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 100_000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    cache.put(offset + i, i);
+                    cache.get(offset + i / 2);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(5000, cache.size());
+        Assertions.assertEquals(8 * 50_000 - 5000, cache.getEvictions());
+        Assertions.assertEquals(5000, cache.values().size());
+    }
+}
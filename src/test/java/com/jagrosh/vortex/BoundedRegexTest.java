@@ -0,0 +1,80 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.automod.Filter;
+import com.jagrosh.vortex.utils.BoundedRegex;
+import com.jagrosh.vortex.utils.BoundedRegex.BudgetExceededException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+public class BoundedRegexTest {
+    // Java remembers where simple nested loops such as (a+)+b already failed, but not for this one
+    private static final Pattern CATASTROPHIC = Pattern.compile("(.*a){12}x");
+    private static final String CATASTROPHIC_TEXT = "x" + "a".repeat(40);
+    private static final String[] PATTERNS = {"a", "ab+c", "^a.*c$", "(ab|ba)+", "\\bcab\\b", "(?<=a)b", "a(?!b)", "(a)\\1", "[abc]{3}", "b*", "(?i)AB", "c\\s+a"};
+    private static final String[] PIECES = {"a", "b", "c", " ", "ab", "ca", "\n"};
+
+    @Test
+    void testCatastrophicPattern() {
+        String text = CATASTROPHIC_TEXT;
+        Assertions.assertThrows(BudgetExceededException.class, () -> BoundedRegex.find(CATASTROPHIC, text));
+        Assertions.assertThrows(BudgetExceededException.class, () -> BoundedRegex.matches(CATASTROPHIC, text));
+
+        BudgetExceededException steps = Assertions.assertThrows(BudgetExceededException.class, () -> BoundedRegex.find(CATASTROPHIC, text, 10_000, TimeUnit.MINUTES.toNanos(1)));
+        Assertions.assertEquals("Regex exceeded its step budget", steps.getMessage());
+
+        // Without a step budget, the time budget still stops it
+        long start = System.nanoTime();
+        BudgetExceededException time = Assertions.assertThrows(BudgetExceededException.class, () -> BoundedRegex.find(CATASTROPHIC, text, Long.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(20)));
+        Assertions.assertEquals("Regex exceeded its time budget", time.getMessage());
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        // The same pattern is fine on text it can match or reject quickly
+        Assertions.assertTrue(BoundedRegex.find(CATASTROPHIC, "a".repeat(12) + "x"));
+        Assertions.assertFalse(BoundedRegex.find(CATASTROPHIC, "xxxx"));
+    }
+
+    @Test
+    void testMatchesPattern() {
+        Random random = new Random(3);
+        for (String regex : PATTERNS) {
+            Pattern pattern = Pattern.compile(regex);
+            for (int i = 0; i < 2000; i++) {
+                StringBuilder sb = new StringBuilder();
+                int pieces = random.nextInt(12);
+                for (int j = 0; j < pieces; j++) {
+                    sb.append(PIECES[random.nextInt(PIECES.length)]);
+                }
+
+                String text = sb.toString();
+                Assertions.assertEquals(pattern.matcher(text).find(), BoundedRegex.find(pattern, text), () -> "find " + regex + " in " + text);
+                Assertions.assertEquals(pattern.matcher(text).matches(), BoundedRegex.matches(pattern, text), () -> regex + " matches " + text);
+            }
+        }
+    }
+
+    @Test
+    void testFilterDisablesRegex() {
+        Filter filter = Filter.parseFilter("`(.*a){12}x` spam");
+        String match = "a".repeat(12) + "x";
+        Assertions.assertTrue(filter.test(match));
+
+        String text = CATASTROPHIC_TEXT;
+        for (int i = 1; i <= Filter.Regex.MAX_OVERRUNS; i++) {
+            Assertions.assertFalse(filter.test(text));
+            Assertions.assertEquals(i, filter.getBudgetOverruns());
+            Assertions.assertEquals(i == Filter.Regex.MAX_OVERRUNS ? 1 : 0, filter.getDisabledRegexes().size());
+        }
+
+        // A disabled regex isn't run anymore, and doesn't match, but the rest of the filter still works
+        Assertions.assertFalse(filter.test(text));
+        Assertions.assertEquals(Filter.Regex.MAX_OVERRUNS, filter.getBudgetOverruns());
+        Assertions.assertEquals(List.of(CATASTROPHIC.pattern()), filter.getDisabledRegexes().stream().map(regex -> regex.pattern.pattern()).toList());
+        Assertions.assertFalse(filter.test(match));
+        Assertions.assertTrue(filter.test("no spam here"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.automod.ContentCondenser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ContentCondenserTest {
+    private static final List<String> ZEROWIDTH = Arrays.asList("\u00AD", "\u034F", "\u17B4", "\u17B5", "\u180B", "\u180C", "\u180D", "\u180E", "\u200B", "\u200C", "\u200D", "\u200E", "\u202A", "\u202C", "\u202D", "\u2060", "\u2061", "\u2062", "\u2063", "\u2064", "\u2065", "\u2066", "\u2067", "\u2068", "\u2069", "\u206A", "\u206B", "\u206C", "\u206D", "\u206E", "\u206F", "\uFE00", "\uFE01", "\uFE02", "\uFE03", "\uFE04", "\uFE05", "\uFE06", "\uFE07", "\uFE08", "\uFE09", "\uFE0A", "\uFE0B", "\uFE0C", "\uFE0D", "\uFE0E", "\uFE0F", "\uFEFF", "\uFFF0", "\uFFF1", "\uFFF2", "\uFFF3", "\uFFF4", "\uFFF5", "\uFFF6", "\uFFF7", "\uFFF8");
+    private static final String[] PIECES = {"a", "b", "ab", "ba", "aba", " ", "  ", "\t", "\n", "\r\n", "\u2028", "\u200B", "\uFEFF", "\uD83D\uDE00", "\uD83D", "\uDE00", "spam", "spam ", "x"};
+
+    /**
+     * The implementation {@link ContentCondenser} replaced
+     */
+    private static String condenseWithRegex(String content) {
+        StringBuilder sb = new StringBuilder();
+        content.chars().filter(c -> !ZEROWIDTH.contains(Character.toString((char) c))).forEach(c -> sb.append((char) c));
+        return sb.toString().trim().replaceAll("(.+?)\\s*(\\1\\s*)+", "$1");
+    }
+
+    @Test
+    void testExamples() {
+        Assertions.assertEquals("spam", ContentCondenser.condense("spam spam spam"));
+        Assertions.assertEquals("spam", ContentCondenser.condense("\u200Bspam\u200Bspam\u200B"));
+        Assertions.assertEquals("helo", ContentCondenser.condense("heeeeello"));
+        Assertions.assertEquals("not repeated", ContentCondenser.condense("  not repeated  "));
+        Assertions.assertEquals("a", ContentCondenser.condense("a\na"));
+        Assertions.assertEquals("", ContentCondenser.condense("\u200B \uFEFF"));
+    }
+
+    @Test
+    void testMatchesRegex() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int pieces = random.nextInt(16);
+            for (int j = 0; j < pieces; j++) {
+                sb.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+
+            String content = sb.toString();
+            Assertions.assertEquals(condenseWithRegex(content), ContentCondenser.condense(content), () -> "Mismatch for " + content.codePoints().mapToObj(Integer::toHexString).toList());
+        }
+    }
+}
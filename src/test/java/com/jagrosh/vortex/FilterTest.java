@@ -15,6 +15,7 @@
  */
 package com.jagrosh.vortex;
 
+import com.jagrosh.vortex.automod.Filter;
 import com.jagrosh.vortex.automod.Filter.Glob;
 import org.junit.jupiter.api.Test;
 
@@ -65,4 +66,17 @@ public class FilterTest {
         assertFalse(glob.test("getthe food"));
         // Just adding this comment so my IDE can do pull requests
     }
+
+    @Test
+    public void filterTest() {
+        Filter filter = Filter.parseFilter("get *her \"to ge\" nope*");
+
+        assertTrue(filter.test("go to get her now"));
+        assertTrue(filter.test("GO TOGETHER NOW"));
+        assertTrue(filter.test("i will go to gel"));
+        assertTrue(filter.test("nopenopenope"));
+        assertFalse(filter.test("go toget hers now"));
+        assertFalse(filter.test("forget it"));
+        assertFalse(filter.test(""));
+    }
 }
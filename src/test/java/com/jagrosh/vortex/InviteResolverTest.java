@@ -0,0 +1,45 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.automod.InviteResolver;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class InviteResolverTest {
+    @Test
+    void testDroppedLookups() {
+        // Nothing is ever sent, so one lookup waits and the rest don't fit in the queue
+        InviteResolver resolver = resolver(0, 1);
+        CompletableFuture<Long> waiting = resolver.resolve("first", null);
+        Assertions.assertFalse(waiting.isDone());
+        Assertions.assertSame(waiting, resolver.resolve("first", null));
+
+        CompletableFuture<Long> dropped = resolver.resolve("second", null);
+        Assertions.assertTrue(dropped.isDone());
+        Assertions.assertEquals(InviteResolver.UNRESOLVED, (long) dropped.join());
+        Assertions.assertEquals(1, resolver.getRejected());
+        Assertions.assertEquals(1, resolver.getQueued());
+
+        // A dropped lookup isn't cached, so it is tried again
+        Assertions.assertEquals(InviteResolver.UNRESOLVED, (long) resolver.resolve("second", null).join());
+        Assertions.assertEquals(2, resolver.getRejected());
+    }
+
+    @Test
+    void testFailedLookups() {
+        // A lookup that fails isn't a dropped one, and counts as an invite that doesn't lead to a guild
+        InviteResolver resolver = resolver(1, 1);
+        CompletableFuture<Long> failed = resolver.resolve("broken", null);
+        Assertions.assertTrue(failed.isDone());
+        Assertions.assertEquals(0L, (long) failed.join());
+        Assertions.assertEquals(0, resolver.getQueued());
+        Assertions.assertEquals(0, resolver.getRejected());
+    }
+
+    private static InviteResolver resolver(int maxInFlight, int queueSize) {
+        return new InviteResolver(ConfigFactory.parseMap(Map.of("invite-resolver.max-in-flight", maxInFlight, "invite-resolver.queue-size", queueSize)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.automod.JoinRateTracker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JoinRateTrackerTest {
+    private static final long GUILD = 1;
+
+    @Test
+    void testPreviousJoin() {
+        JoinRateTracker tracker = new JoinRateTracker();
+        Assertions.assertEquals(-1, tracker.recordJoin(GUILD, 100, 1));
+        Assertions.assertEquals(100, tracker.recordJoin(GUILD, 200, 1));
+        Assertions.assertEquals(200, tracker.recordJoin(GUILD, 300, 3));
+        Assertions.assertEquals(300, tracker.recordJoin(GUILD, 400, 3));
+
+        // Every guild has its own joins
+        Assertions.assertEquals(-1, tracker.recordJoin(GUILD + 1, 500, 1));
+        Assertions.assertEquals(400, tracker.recordJoin(GUILD, 600, 0));
+    }
+
+    @Test
+    void testWindowBoundary() {
+        JoinRateTracker tracker = new JoinRateTracker();
+        for (long time = 1000; time <= 5000; time += 1000) {
+            tracker.recordJoin(GUILD, time, 3);
+        }
+
+        // The window starts after its start time, so a join right at the start doesn't count
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD, 3, 2999));
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 3, 3000));
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD, 1, 4999));
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 1, 5000));
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD, 0, 5000));
+
+        // Only the joins that were kept can be counted
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 4, 0));
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD + 1, 1, 0));
+    }
+
+    @Test
+    void testGrow() {
+        JoinRateTracker tracker = new JoinRateTracker();
+        for (long time = 1; time <= 5; time++) {
+            tracker.recordJoin(GUILD, time * 1000, 2);
+        }
+
+        // Raising the threshold keeps the joins that were already there, in order
+        Assertions.assertEquals(5000, tracker.recordJoin(GUILD, 6000, 4));
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD, 3, 3999));
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 4, 0));
+        Assertions.assertEquals(6000, tracker.recordJoin(GUILD, 7000, 4));
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD, 4, 3999));
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 4, 4000));
+
+        // Past the new size, the oldest joins are replaced again
+        Assertions.assertEquals(7000, tracker.recordJoin(GUILD, 8000, 4));
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD, 4, 4999));
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 5, 0));
+    }
+
+    @Test
+    void testRemove() {
+        JoinRateTracker tracker = new JoinRateTracker();
+        tracker.recordJoin(GUILD, 1000, 2);
+        tracker.recordJoin(GUILD + 1, 1000, 2);
+        tracker.remove(GUILD);
+        Assertions.assertFalse(tracker.hasJoinsSince(GUILD, 1, 0));
+        Assertions.assertTrue(tracker.hasJoinsSince(GUILD + 1, 1, 0));
+        Assertions.assertEquals(-1, tracker.recordJoin(GUILD, 2000, 2));
+    }
+}
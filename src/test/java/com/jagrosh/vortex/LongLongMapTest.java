@@ -0,0 +1,69 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.utils.LongLongMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongLongMapTest {
+    @Test
+    void testPutGetRemove() {
+        LongLongMap map = new LongLongMap();
+        Assertions.assertEquals(-1, map.put(1234567890123L, 5, -1));
+        Assertions.assertEquals(5, map.put(1234567890123L, 6, -1));
+        Assertions.assertEquals(6, map.get(1234567890123L, -1));
+        Assertions.assertEquals(-1, map.get(42, -1));
+        Assertions.assertTrue(map.containsKey(1234567890123L));
+
+        Assertions.assertEquals(6, map.remove(1234567890123L, -1));
+        Assertions.assertEquals(-1, map.remove(1234567890123L, -1));
+        Assertions.assertEquals(0, map.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(0, 1, -1));
+        Assertions.assertEquals(-1, map.get(0, -1));
+        Assertions.assertFalse(map.containsKey(0));
+        Assertions.assertEquals(-1, map.remove(0, -1));
+    }
+
+    @Test
+    void testMatchesHashMap() {
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        long base = 1100000000000000000L;
+        for (int i = 0; i < 200_000; i++) {
+            // Snowflakes close together, to exercise collisions and backward shifts
+            long key = base + ((long) random.nextInt(5000) << 22);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals((long) expected.getOrDefault(key, -1L), map.remove(key, -1));
+                expected.remove(key);
+            } else {
+                Assertions.assertEquals((long) expected.getOrDefault(key, -1L), map.put(key, i, -1));
+                expected.put(key, (long) i);
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> Assertions.assertEquals((long) value, map.get(key, -1)));
+    }
+
+    @Test
+    void testRemoveIf() {
+        LongLongMap map = new LongLongMap();
+        for (long key = 1; key <= 1000; key++) {
+            map.put(key << 22, key % 3, -1);
+        }
+
+        Assertions.assertEquals(334, map.removeIf((key, value) -> value == 1));
+        Assertions.assertEquals(666, map.size());
+        for (long key = 1; key <= 1000; key++) {
+            Assertions.assertEquals(key % 3 == 1 ? -1 : key % 3, map.get(key << 22, -1));
+        }
+
+        Assertions.assertEquals(666, map.removeIf((key, value) -> true));
+        Assertions.assertEquals(0, map.size());
+        Assertions.assertEquals(-1, map.put(42, 7, -1));
+    }
+}
@@ -0,0 +1,40 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.utils.LongSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class LongSetTest {
+    @Test
+    void testOf() {
+        LongSet set = LongSet.of(List.of(30L, 10L, 20L, 10L));
+        Assertions.assertEquals(3, set.size());
+        Assertions.assertArrayEquals(new long[]{10, 20, 30}, set.stream().toArray());
+        Assertions.assertTrue(set.contains(20));
+        Assertions.assertFalse(set.contains(25));
+        Assertions.assertSame(LongSet.EMPTY, LongSet.of(List.of()));
+    }
+
+    @Test
+    void testWithAndWithout() {
+        LongSet set = LongSet.of(List.of(10L, 30L));
+        LongSet added = set.with(20);
+        Assertions.assertArrayEquals(new long[]{10, 20, 30}, added.stream().toArray());
+        Assertions.assertArrayEquals(new long[]{10, 30}, set.stream().toArray());
+        Assertions.assertSame(added, added.with(20));
+
+        Assertions.assertArrayEquals(new long[]{10, 30}, added.without(20).stream().toArray());
+        Assertions.assertSame(added, added.without(25));
+        Assertions.assertSame(LongSet.EMPTY, LongSet.EMPTY.with(5).without(5));
+    }
+
+    @Test
+    void testWithAllAndWithoutAll() {
+        LongSet set = LongSet.of(List.of(10L, 30L)).withAll(List.of(40L, 20L, 10L));
+        Assertions.assertArrayEquals(new long[]{10, 20, 30, 40}, set.stream().toArray());
+        Assertions.assertArrayEquals(new long[]{20, 40}, set.withoutAll(List.of(10L, 30L, 50L)).stream().toArray());
+        Assertions.assertEquals(set, set.withoutAll(List.of(50L)));
+    }
+}
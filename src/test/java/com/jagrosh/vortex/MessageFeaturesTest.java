@@ -0,0 +1,88 @@
+package com.jagrosh.vortex;
+
+import com.jagrosh.vortex.automod.MessageFeatures;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class MessageFeaturesTest {
+    /**
+     * The regexes {@link MessageFeatures} replaced
+     */
+    private static final Pattern INVITES = Pattern.compile("discord\\s?(?:(?:\\.|dot|\\(\\.\\)|\\(dot\\))\\s?gg|(?:app)?\\s?\\.\\s?com\\s?/\\s?invite)\\s?/\\s?([A-Z0-9-]{2,18})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern REF = Pattern.compile("https?://\\S+(?:/ref/|[?&#]ref(?:errer|erral)?=)\\S+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LINK = Pattern.compile("https?://\\S+", Pattern.CASE_INSENSITIVE);
+    private static final String[] PIECES = {"discord", "DISCORD", "Discord", " ", "  ", "\t", "\n", "\r", "\u00A0", ".", "dot", "DOT", "(.)", "(dot)", "gg", "GG",
+            "app", "com", "/", "invite", "INVITE", "abc", "X-1", "-", "0123456789", "aaaaaaaaaaaaaaaaaaaa", "\u212A", "\u017F", "\u0130",
+            "http", "https", "HTTPS", "://", "example.com", "ref", "/ref/", "?ref=", "&referrer=", "#referral=", "=", "?", ">", "x"};
+
+    @Test
+    void testExamples() {
+        MessageFeatures features = features("join discord.gg/abc and https://discord.com/invite/xyz-1>\nhttps://example.com/?ref=me\n\n");
+        Assertions.assertEquals(List.of("abc", "xyz-1"), features.getInviteCodes());
+        Assertions.assertEquals(List.of("https://discord.com/invite/xyz-1", "https://example.com/?ref=me"), urls(features));
+        Assertions.assertEquals(List.of("discord.com", "example.com"), features.getHosts());
+        Assertions.assertTrue(features.hasReferralLink());
+        Assertions.assertEquals(2, features.getLineCount());
+
+        Assertions.assertEquals(List.of("abc"), features("discord (dot) gg / abc").getInviteCodes());
+        Assertions.assertEquals(List.of("abc"), features("DISCORDAPP .COM/ INVITE /abc").getInviteCodes());
+        Assertions.assertEquals(List.of(), features("discord.gg/a").getInviteCodes());
+        Assertions.assertFalse(features("https://example.com/ref/").hasReferralLink());
+        Assertions.assertEquals(0, features("\n\n").getLineCount());
+        Assertions.assertEquals(1, features("").getLineCount());
+    }
+
+    @Test
+    void testMatchesRegex() {
+        Random random = new Random(13);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int pieces = random.nextInt(20);
+            for (int j = 0; j < pieces; j++) {
+                sb.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+
+            String content = sb.toString();
+            MessageFeatures features = features(content);
+            Assertions.assertEquals(invitesWithRegex(content), features.getInviteCodes(), () -> "Invites of " + content);
+            Assertions.assertEquals(linksWithRegex(content), urls(features), () -> "Links of " + content);
+            Assertions.assertEquals(REF.matcher(content).find(), features.hasReferralLink(), () -> "Referral in " + content);
+            Assertions.assertEquals(content.split("\n").length, features.getLineCount(), () -> "Lines of " + content);
+        }
+    }
+
+    private static List<String> invitesWithRegex(String content) {
+        List<String> invites = new ArrayList<>();
+        Matcher m = INVITES.matcher(content);
+        while (m.find()) {
+            invites.add(m.group(1));
+        }
+
+        return invites;
+    }
+
+    private static List<String> linksWithRegex(String content) {
+        List<String> links = new ArrayList<>();
+        Matcher m = LINK.matcher(content);
+        while (m.find()) {
+            links.add(m.group().endsWith(">") ? m.group().substring(0, m.group().length() - 1) : m.group());
+        }
+
+        return links;
+    }
+
+    private static MessageFeatures features(String content) {
+        return new MessageFeatures(content, Collections.emptyList(), 0, 0);
+    }
+
+    private static List<String> urls(MessageFeatures features) {
+        return features.getLinks().stream().map(MessageFeatures.Link::url).toList();
+    }
+}
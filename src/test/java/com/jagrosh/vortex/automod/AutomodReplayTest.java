@@ -0,0 +1,72 @@
+package com.jagrosh.vortex.automod;
+
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigParseOptions;
+import net.dv8tion.jda.api.entities.Guild;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class AutomodReplayTest {
+    /**
+     * Why every message of the sample corpus is deleted, or null if it isn't
+     */
+    private static final List<String> REASONS = Arrays.asList(
+            null, null, null, "Duplicate messages",
+            "Mentioning 5 users",
+            "Mentioning 3 roles",
+            "Message contained 6 newlines",
+            "Bad Words Filter",
+            "Advertising",
+            "Referral link",
+            // {spam} channel
+            null,
+            // guild without settings
+            null, null);
+
+    @Test
+    void testSampleCorpus() throws Exception {
+        AutomodReplay.SettingsFile settings = new AutomodReplay.SettingsFile(ConfigFactory.parseResources("replay/settings.conf", ConfigParseOptions.defaults().setAllowMissing(false)));
+        AutomodReplay replay = new AutomodReplay(ConfigFactory.load(), settings);
+        List<AutomodContext> corpus = replay.load(Path.of(getClass().getClassLoader().getResource("replay/corpus.jsonl").toURI()));
+
+        String report = replay.replay(corpus);
+        Assertions.assertEquals(REASONS, corpus.stream().map(AutomodContext::getReason).collect(Collectors.toList()));
+        Assertions.assertNotNull(corpus.get(2).getPurgeSince());
+        Assertions.assertTrue(report.startsWith("Messages: 13, Deleted: 7, Purges: 1"), report);
+    }
+
+    @Test
+    void testSettingsFile() {
+        AutomodReplay.SettingsFile settings = new AutomodReplay.SettingsFile(ConfigFactory.parseString("guilds { \"1\" { max-lines = 5, filter-invites = false, dehoist-char = \"!\", very-bad-words = \"`sp[a4]m`\", invite-whitelist = [\"3\", \"2\"] } }"));
+        Assertions.assertEquals(5, settings.getSettings(guild(1)).maxLines);
+        Assertions.assertFalse(settings.getSettings(guild(1)).filterInvites);
+        Assertions.assertTrue(settings.getSettings(guild(1)).filterRefs);
+        Assertions.assertEquals('!', settings.getSettings(guild(1)).dehoistChar);
+        Assertions.assertNull(settings.getFilters(1).badWords());
+        Assertions.assertTrue(settings.getFilters(1).veryBadWords().test("SP4M"));
+        Assertions.assertTrue(settings.getInviteWhitelist(guild(1)).contains(2));
+        Assertions.assertFalse(settings.getInviteWhitelist(guild(1)).contains(1));
+
+        // Guilds that aren't in the file have the settings of a guild that never changed them
+        Assertions.assertEquals(0, settings.getSettings(guild(2)).maxLines);
+        Assertions.assertTrue(settings.getSettings(guild(2)).filterInvites);
+        Assertions.assertNull(settings.getFilters(2).badWords());
+        Assertions.assertFalse(settings.getInviteWhitelist(guild(2)).contains(1));
+    }
+
+    private static Guild guild(long id) {
+        return (Guild) Proxy.newProxyInstance(Guild.class.getClassLoader(), new Class<?>[]{Guild.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("getIdLong")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            return id;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.jagrosh.vortex.automod;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+public class ChannelFlagsTest {
+    private static final int SPAM = ChannelFlags.Flag.SPAM.bit();
+    private static final int INVITES = ChannelFlags.Flag.INVITES.bit();
+
+    @Test
+    void testRemoveGuild() {
+        ChannelFlags flags = new ChannelFlags();
+        Assertions.assertEquals(SPAM, flags.get(channel(1, 10, "{spam}")));
+        Assertions.assertEquals(INVITES, flags.get(channel(1, 11, "{Invites}")));
+        flags.update(2, 20, "{spam} {invites}");
+        flags.update(2, 21, null);
+        Assertions.assertEquals(4, flags.size());
+
+        flags.removeGuild(1);
+        Assertions.assertEquals(2, flags.size());
+
+        // The forgotten channels read their topic again, the other guild's channels are still cached
+        Assertions.assertEquals(0, flags.get(channel(1, 10, "")));
+        Assertions.assertEquals(SPAM | INVITES, flags.get(channel(2, 20, "")));
+        Assertions.assertEquals(0, flags.get(channel(2, 21, "{spam}")));
+
+        // Leaving a guild without cached channels doesn't change anything
+        flags.removeGuild(3);
+        Assertions.assertEquals(3, flags.size());
+    }
+
+    @Test
+    void testRemoveChannel() {
+        ChannelFlags flags = new ChannelFlags();
+        flags.update(1, 10, "{spam}");
+        flags.update(1, 11, "{spam}");
+        flags.remove(10);
+        Assertions.assertEquals(1, flags.size());
+        Assertions.assertEquals(0, flags.get(channel(1, 10, null)));
+
+        flags.removeGuild(1);
+        Assertions.assertEquals(0, flags.size());
+    }
+
+    private static TextChannel channel(long guildId, long channelId, String topic) {
+        Guild guild = (Guild) Proxy.newProxyInstance(Guild.class.getClassLoader(), new Class<?>[]{Guild.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getIdLong" -> guildId;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        return (TextChannel) Proxy.newProxyInstance(TextChannel.class.getClassLoader(), new Class<?>[]{TextChannel.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getIdLong" -> channelId;
+            case "getGuild" -> guild;
+            case "getTopic" -> topic;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
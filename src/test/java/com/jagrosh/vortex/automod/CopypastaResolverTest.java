@@ -0,0 +1,124 @@
+package com.jagrosh.vortex.automod;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CopypastaResolverTest {
+    private static final String[] PHRASES = {"navy seal", "seal", "gorilla", "gorilla warfare", "what the", "the", "he", "rick", "roll", "rickroll", "never gonna", "give you up", "a", "ab", "ba", "aba"};
+
+    /**
+     * The check {@link CopypastaResolver} replaced, which looked for every phrase of every copypasta separately
+     * @return The names of all the copypastas in the message
+     */
+    private static Set<String> findWithContains(Map<String, List<String>> copypastas, String message) {
+        String lower = message.toLowerCase();
+        Set<String> found = new LinkedHashSet<>();
+        copypastas.forEach((name, phrases) -> {
+            if (phrases.stream().allMatch(lower::contains)) {
+                found.add(name);
+            }
+        });
+
+        return found;
+    }
+
+    @Test
+    void testExamples() {
+        CopypastaResolver resolver = resolver(Map.of(
+                "Navy Seal", List.of("what the", "navy seal", "gorilla warfare"),
+                "Rickroll", List.of("never gonna", "give you up")));
+        Assertions.assertEquals("Navy Seal", resolver.getCopypasta("What the... I am a NAVY SEAL trained in gorilla warfare"));
+        Assertions.assertEquals("Rickroll", resolver.getCopypasta("never gonna give you up"));
+        Assertions.assertNull(resolver.getCopypasta("what the navy seal"));
+        Assertions.assertNull(resolver.getCopypasta(""));
+        Assertions.assertNull(new CopypastaResolver().getCopypasta("anything"));
+    }
+
+    @Test
+    void testSharedAndDuplicatePhrases() {
+        CopypastaResolver resolver = resolver(Map.of(
+                "First", List.of("seal", "gorilla", "seal"),
+                "Second", List.of("gorilla", "rick", "gorilla")));
+        Assertions.assertEquals("First", resolver.getCopypasta("a seal and a gorilla"));
+        Assertions.assertEquals("Second", resolver.getCopypasta("rick the gorilla"));
+        Assertions.assertNull(resolver.getCopypasta("just a gorilla"));
+    }
+
+    @Test
+    void testPhraseLimit() {
+        List<String> phrases = IntStream.range(0, 64).mapToObj(i -> "p" + i + "q").collect(Collectors.toList());
+        String all = String.join(" ", phrases);
+        String allButLast = String.join(" ", phrases.subList(0, 63));
+
+        CopypastaResolver resolver = resolver(Map.of("Full", phrases));
+        Assertions.assertEquals("Full", resolver.getCopypasta(all));
+        Assertions.assertNull(resolver.getCopypasta(allButLast));
+
+        // Duplicates don't count towards the limit
+        List<String> duplicated = new ArrayList<>(phrases);
+        duplicated.addAll(phrases.subList(0, 10));
+        Assertions.assertEquals("Duplicated", resolver(Map.of("Duplicated", duplicated)).getCopypasta(all));
+
+        // Copypastas with too many phrases are ignored, without affecting the others
+        List<String> tooMany = new ArrayList<>(phrases);
+        tooMany.add("p64q");
+        CopypastaResolver limited = resolver(Map.of("Too many", tooMany, "Rickroll", List.of("never gonna", "give you up")));
+        Assertions.assertNull(limited.getCopypasta(all + " p64q"));
+        Assertions.assertEquals("Rickroll", limited.getCopypasta(all + " p64q never gonna give you up"));
+    }
+
+    @Test
+    void testMatchesContains() {
+        Random random = new Random(9);
+        for (int round = 0; round < 500; round++) {
+            Map<String, List<String>> copypastas = new LinkedHashMap<>();
+            int count = 1 + random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                List<String> phrases = new ArrayList<>();
+                int size = 1 + random.nextInt(5);
+                for (int j = 0; j < size; j++) {
+                    phrases.add(PHRASES[random.nextInt(PHRASES.length)]);
+                }
+
+                copypastas.put("Copypasta " + i, phrases);
+            }
+
+            CopypastaResolver resolver = resolver(copypastas);
+            for (int i = 0; i < 200; i++) {
+                StringBuilder sb = new StringBuilder();
+                int words = random.nextInt(10);
+                for (int j = 0; j < words; j++) {
+                    String phrase = PHRASES[random.nextInt(PHRASES.length)];
+                    sb.append(random.nextBoolean() ? phrase.toUpperCase() : phrase).append(random.nextInt(4) == 0 ? "" : " ");
+                }
+
+                String message = sb.toString();
+                Set<String> expected = findWithContains(copypastas, message);
+                String found = resolver.getCopypasta(message);
+                if (expected.isEmpty()) {
+                    Assertions.assertNull(found, () -> "Found " + found + " in " + message);
+                } else {
+                    Assertions.assertTrue(expected.contains(found), () -> "Found " + found + " instead of one of " + expected + " in " + message);
+                }
+            }
+        }
+    }
+
+    private static CopypastaResolver resolver(Map<String, List<String>> copypastas) {
+        CopypastaResolver resolver = new CopypastaResolver();
+        resolver.load(copypastas.entrySet().stream()
+                .map(entry -> entry.getKey() + " || " + String.join(" && ", entry.getValue()))
+                .toArray(String[]::new));
+        return resolver;
+    }
+}
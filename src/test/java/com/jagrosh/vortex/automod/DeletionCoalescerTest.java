@@ -0,0 +1,203 @@
+package com.jagrosh.vortex.automod;
+
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class DeletionCoalescerTest {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final ScheduledExecutorService executor = (ScheduledExecutorService) Proxy.newProxyInstance(ScheduledExecutorService.class.getClassLoader(), new Class<?>[]{ScheduledExecutorService.class}, (proxy, method, args) -> {
+        // Tasks only run when the test runs them, whether they were scheduled or not
+        if (!method.getName().equals("execute") && !method.getName().equals("schedule")) {
+            throw new UnsupportedOperationException(method.getName());
+        }
+
+        tasks.add((Runnable) args[0]);
+        return null;
+    });
+
+    @Test
+    void testBatches() {
+        DeletionCoalescer deletions = new DeletionCoalescer(executor, 500, 1000);
+        Channel channel = new Channel(1);
+        for (long id = 1; id <= 250; id++) {
+            Assertions.assertTrue(deletions.delete(channel.proxy, id, AutoMod.DELETE_AUDIT));
+        }
+
+        runTasks();
+        Assertions.assertEquals(List.of(ids(1, 100), ids(101, 200), ids(201, 250)), channel.batches);
+        Assertions.assertEquals(List.of(), channel.singles);
+        Assertions.assertEquals(250, deletions.getRequested());
+        Assertions.assertEquals(3, deletions.getRestCalls());
+        Assertions.assertEquals(247, deletions.getSaved());
+        Assertions.assertEquals(250, deletions.getPending());
+
+        channel.finish();
+        Assertions.assertEquals(0, deletions.getPending());
+        Assertions.assertEquals(0, deletions.getChannels());
+    }
+
+    @Test
+    void testSingleMessageKeepsReason() {
+        DeletionCoalescer deletions = new DeletionCoalescer(executor, 500, 1000);
+        Channel channel = new Channel(1);
+        Assertions.assertTrue(deletions.delete(channel.proxy, 5, "Advertising (Resolved Link)"));
+        // Queuing a message twice deletes it once, with the first reason
+        Assertions.assertTrue(deletions.delete(channel.proxy, 5, null));
+
+        runTasks();
+        Assertions.assertEquals(List.of(), channel.batches);
+        Assertions.assertEquals(List.of("5 Advertising (Resolved Link)"), channel.singles);
+        Assertions.assertEquals(1, deletions.getRequested());
+        Assertions.assertEquals(1, deletions.getRestCalls());
+        Assertions.assertEquals(0, deletions.getSaved());
+    }
+
+    @Test
+    void testBacklog() {
+        DeletionCoalescer deletions = new DeletionCoalescer(executor, 500, 5);
+        Channel full = new Channel(1);
+        Channel other = new Channel(2);
+        for (long id = 1; id <= 7; id++) {
+            Assertions.assertEquals(id <= 5, deletions.delete(full.proxy, id, AutoMod.DELETE_AUDIT));
+        }
+
+        // Every channel has its own backlog
+        Assertions.assertTrue(deletions.delete(other.proxy, 1, AutoMod.DELETE_AUDIT));
+        Assertions.assertEquals(2, deletions.getDropped());
+        Assertions.assertEquals(6, deletions.getPending());
+
+        // Messages that were sent but not deleted yet still count towards the backlog
+        runTasks();
+        Assertions.assertEquals(List.of(ids(1, 5)), full.batches);
+        Assertions.assertFalse(deletions.delete(full.proxy, 8, AutoMod.DELETE_AUDIT));
+        Assertions.assertEquals(3, deletions.getDropped());
+        Assertions.assertEquals(6, deletions.getRequested());
+
+        full.finish();
+        Assertions.assertTrue(deletions.delete(full.proxy, 8, AutoMod.DELETE_AUDIT));
+        Assertions.assertEquals(3, deletions.getDropped());
+    }
+
+    @Test
+    void testIdleChannels() {
+        DeletionCoalescer deletions = new DeletionCoalescer(executor, 500, 1000);
+        Channel first = new Channel(1);
+        Channel second = new Channel(2);
+        deletions.delete(first.proxy, 1, AutoMod.DELETE_AUDIT);
+        deletions.delete(first.proxy, 2, AutoMod.DELETE_AUDIT);
+        deletions.delete(second.proxy, 3, AutoMod.DELETE_AUDIT);
+        deletions.delete(second.proxy, 4, AutoMod.DELETE_AUDIT);
+        Assertions.assertEquals(2, deletions.getChannels());
+
+        runTasks();
+        Assertions.assertEquals(2, deletions.getChannels());
+        first.finish();
+        Assertions.assertEquals(1, deletions.getChannels());
+
+        // Failed deletions release the channel as well
+        second.fail();
+        Assertions.assertEquals(0, deletions.getChannels());
+        Assertions.assertEquals(0, deletions.getPending());
+
+        // A forgotten channel starts over when a message is queued in it again
+        Assertions.assertTrue(deletions.delete(first.proxy, 5, AutoMod.DELETE_AUDIT));
+        Assertions.assertEquals(1, deletions.getChannels());
+        runTasks();
+        first.finish();
+        Assertions.assertEquals(List.of("5 " + AutoMod.DELETE_AUDIT), first.singles);
+        Assertions.assertEquals(0, deletions.getChannels());
+
+        // So does a channel the bot can't delete messages in
+        second.denied = true;
+        deletions.delete(second.proxy, 6, AutoMod.DELETE_AUDIT);
+        deletions.delete(second.proxy, 7, AutoMod.DELETE_AUDIT);
+        runTasks();
+        Assertions.assertEquals(0, deletions.getChannels());
+        Assertions.assertEquals(0, deletions.getPending());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static List<String> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).mapToObj(Long::toString).collect(Collectors.toList());
+    }
+
+    /**
+     * A channel that remembers what it was asked to delete, and finishes the deletions when the test says so
+     */
+    private static class Channel {
+        private final List<List<String>> batches = new ArrayList<>();
+        private final List<String> singles = new ArrayList<>();
+        private final List<CompletableFuture<Void>> requests = new ArrayList<>();
+        private final GuildMessageChannel proxy;
+        private boolean denied = false;
+
+        private Channel(long id) {
+            this.proxy = (GuildMessageChannel) Proxy.newProxyInstance(GuildMessageChannel.class.getClassLoader(), new Class<?>[]{GuildMessageChannel.class}, (proxy, method, args) -> {
+                if (denied && method.getName().startsWith("purge")) {
+                    throw new PermissionException("Missing permission");
+                }
+
+                return switch (method.getName()) {
+                    case "getIdLong" -> id;
+                    case "purgeMessagesById" -> {
+                        @SuppressWarnings("unchecked")
+                        List<String> ids = (List<String>) args[0];
+                        batches.add(new ArrayList<>(ids));
+                        yield List.of(request());
+                    }
+                    case "deleteMessageById" -> action((String) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                };
+            });
+        }
+
+        private CompletableFuture<Void> request() {
+            CompletableFuture<Void> request = new CompletableFuture<>();
+            requests.add(request);
+            return request;
+        }
+
+        @SuppressWarnings("unchecked")
+        private AuditableRestAction<Void> action(String id) {
+            return (AuditableRestAction<Void>) Proxy.newProxyInstance(AuditableRestAction.class.getClassLoader(), new Class<?>[]{AuditableRestAction.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "reason" -> {
+                    singles.add(id + " " + args[0]);
+                    yield proxy;
+                }
+                case "submit" -> request();
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        }
+
+        private void finish() {
+            List<CompletableFuture<Void>> finishing = new ArrayList<>(requests);
+            requests.clear();
+            finishing.forEach(request -> request.complete(null));
+        }
+
+        private void fail() {
+            List<CompletableFuture<Void>> failing = new ArrayList<>(requests);
+            requests.clear();
+            failing.forEach(request -> request.completeExceptionally(new RuntimeException("Unknown Message")));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.jagrosh.vortex.automod;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class DuplicateTrackerTest {
+    private static final long GUILD = 100;
+    private static final long WINDOW = 30_000;
+
+    @Test
+    void testInterleaved() {
+        DuplicateTracker tracker = new DuplicateTracker(1000, WINDOW);
+        int[] expected = {0, 0, 1, 1, 2, 2, 3, 3};
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertEquals(expected[i], tracker.record(GUILD, 1, i % 2 == 0 ? "a" : "b", i * 100L), "Message " + i);
+        }
+
+        // Other members and guilds have their own messages
+        Assertions.assertEquals(0, tracker.record(GUILD, 2, "a", 1000));
+        Assertions.assertEquals(0, tracker.record(GUILD + 1, 1, "a", 1000));
+        Assertions.assertEquals(4, tracker.record(GUILD, 1, "a", 1000));
+    }
+
+    @Test
+    void testWindow() {
+        DuplicateTracker tracker = new DuplicateTracker(1000, WINDOW);
+        Assertions.assertEquals(0, tracker.record(GUILD, 1, "a", 0));
+        Assertions.assertEquals(1, tracker.record(GUILD, 1, "a", 10_000));
+        Assertions.assertEquals(2, tracker.record(GUILD, 1, "a", WINDOW - 1));
+
+        // The first message is now exactly a window old
+        Assertions.assertEquals(0, tracker.record(GUILD, 1, "b", WINDOW));
+        Assertions.assertEquals(2, tracker.record(GUILD, 1, "a", WINDOW));
+        Assertions.assertEquals(0, tracker.record(GUILD, 1, "a", 100_000));
+    }
+
+    @Test
+    void testStreakPastRing() {
+        DuplicateTracker tracker = new DuplicateTracker(1000, WINDOW);
+        for (int i = 0; i < 40; i++) {
+            Assertions.assertEquals(i, tracker.record(GUILD, 1, "a", i));
+        }
+
+        // Alternating messages only count what is still in the ring, which holds 8 of each
+        for (int i = 0; i < 40; i++) {
+            Assertions.assertEquals(Math.min(i / 2, 8), tracker.record(GUILD, 2, i % 2 == 0 ? "a" : "b", i), "Message " + i);
+        }
+
+        // A different message ends the streak
+        Assertions.assertEquals(0, tracker.record(GUILD, 1, "b", 50));
+        Assertions.assertEquals(15, tracker.record(GUILD, 1, "a", 51));
+    }
+
+    @Test
+    void testEviction() {
+        // Every stripe has room for two members
+        DuplicateTracker tracker = new DuplicateTracker(32, WINDOW);
+        long[] users = sameStripe(3);
+        for (long user : users) {
+            tracker.record(GUILD, user, "a", 0);
+        }
+
+        // The first member was evicted, so their message is new again and evicts the second one
+        Assertions.assertEquals(0, tracker.record(GUILD, users[0], "a", 1));
+        // Using the third member makes the first one the least recently used, even though it was added last
+        Assertions.assertEquals(1, tracker.record(GUILD, users[2], "a", 2));
+        Assertions.assertEquals(0, tracker.record(GUILD, users[1], "a", 3));
+        Assertions.assertEquals(2, tracker.record(GUILD, users[2], "a", 4));
+        Assertions.assertEquals(0, tracker.record(GUILD, users[0], "a", 5));
+    }
+
+    @Test
+    void testCollision() {
+        // The mix starts from guild * C + user, so moving one C from the user to the guild gives the same key
+        long guild = GUILD, user = 1;
+        long otherGuild = guild + 1, otherUser = user - 0x9E3779B97F4A7C15L;
+        Assertions.assertEquals(DuplicateTracker.key(guild, user), DuplicateTracker.key(otherGuild, otherUser));
+
+        DuplicateTracker tracker = new DuplicateTracker(1000, WINDOW);
+        Assertions.assertEquals(0, tracker.record(guild, user, "a", 0));
+        Assertions.assertEquals(1, tracker.record(guild, user, "a", 1));
+        // The other member doesn't see the first one's messages, and replaces them
+        Assertions.assertEquals(0, tracker.record(otherGuild, otherUser, "a", 2));
+        Assertions.assertEquals(0, tracker.record(guild, user, "a", 3));
+        Assertions.assertEquals(1, tracker.record(guild, user, "a", 4));
+    }
+
+    @Test
+    void testMatchesModel() {
+        Random random = new Random(11);
+        DuplicateTracker tracker = new DuplicateTracker(64, 1000);
+        long[] users = new long[40];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = 1000 + random.nextInt(1_000_000);
+        }
+
+        // One access-ordered map per stripe, with a full list of messages per member
+        List<Map<Long, List<long[]>>> stripes = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            stripes.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, List<long[]>> eldest) {
+                    return size() > 4;
+                }
+            });
+        }
+
+        long time = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long user = users[random.nextInt(users.length)];
+            String content = Integer.toString(random.nextInt(3));
+            time += random.nextInt(50);
+            long key = DuplicateTracker.key(GUILD, user);
+            List<long[]> messages = stripes.get((int) (key >>> 60)).computeIfAbsent(user, u -> new ArrayList<>());
+            long fingerprint = content.hashCode();
+
+            // Matches among the last 16 messages, or the run of identical messages before this one
+            int matches = 0;
+            for (int j = Math.max(0, messages.size() - 16); j < messages.size(); j++) {
+                if (messages.get(j)[0] == fingerprint && time - messages.get(j)[1] < 1000) {
+                    matches++;
+                }
+            }
+
+            int streak = 0;
+            for (int j = messages.size() - 1; j >= 0 && messages.get(j)[0] == fingerprint && (j == messages.size() - 1 ? time : messages.get(j + 1)[1]) - messages.get(j)[1] < 1000; j--) {
+                streak++;
+            }
+
+            messages.add(new long[]{fingerprint, time});
+            int index = i;
+            Assertions.assertEquals(Math.max(matches, streak), tracker.record(GUILD, user, content, time), () -> "Message " + index);
+        }
+    }
+
+    /**
+     * @return Users whose keys in {@link #GUILD} are all in the same stripe
+     */
+    private static long[] sameStripe(int count) {
+        long[] users = new long[count];
+        long stripe = DuplicateTracker.key(GUILD, 1) >>> 60;
+        int found = 0;
+        for (long user = 1; found < count; user++) {
+            if (DuplicateTracker.key(GUILD, user) >>> 60 == stripe) {
+                users[found++] = user;
+            }
+        }
+
+        return users;
+    }
+}
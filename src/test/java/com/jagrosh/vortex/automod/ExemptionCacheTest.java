@@ -0,0 +1,163 @@
+package com.jagrosh.vortex.automod;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ExemptionCacheTest {
+    private static final long GUILD = 1;
+    private static final long SELF = 2;
+
+    private final Map<Long, Integer> checks = new HashMap<>();
+    private Runnable duringCheck = () -> {};
+
+    private final Guild guild = (Guild) Proxy.newProxyInstance(Guild.class.getClassLoader(), new Class<?>[]{Guild.class}, (proxy, method, args) -> switch (method.getName()) {
+        case "getIdLong" -> GUILD;
+        case "getSelfMember", "getOwner" -> this.self;
+        default -> throw new UnsupportedOperationException(method.getName());
+    });
+    private final Member self = member(SELF);
+    private final TextChannel channel = proxy(TextChannel.class, Map.of("getIdLong", 10L));
+    private final TextChannel ignoredChannel = proxy(TextChannel.class, Map.of("getIdLong", 11L));
+
+    // Only the ignored channel is ignored, without going through the database
+    private final ExemptionCache cache = new ExemptionCache(null, 1000) {
+        @Override
+        boolean isIgnored(TextChannel channel) {
+            return channel == ignoredChannel;
+        }
+
+        @Override
+        boolean isIgnored(Member member) {
+            return false;
+        }
+    };
+
+    @Test
+    void testInvalidateMember() {
+        Member first = member(100);
+        Member second = member(101);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(cache.shouldPerformAutomod(first, channel));
+            Assertions.assertTrue(cache.shouldPerformAutomod(first, null));
+            Assertions.assertTrue(cache.shouldPerformAutomod(second, channel));
+            Assertions.assertTrue(cache.shouldPerformAutomod(second, null));
+        }
+
+        Assertions.assertEquals(2, checks(first));
+        Assertions.assertEquals(2, checks(second));
+
+        // Only the member whose roles changed is checked again, in every channel and without one
+        cache.invalidate(guild, first.getIdLong());
+        Assertions.assertTrue(cache.shouldPerformAutomod(first, channel));
+        Assertions.assertTrue(cache.shouldPerformAutomod(first, null));
+        Assertions.assertTrue(cache.shouldPerformAutomod(second, channel));
+        Assertions.assertTrue(cache.shouldPerformAutomod(second, null));
+        Assertions.assertEquals(4, checks(first));
+        Assertions.assertEquals(2, checks(second));
+
+        // A change to the bot's own roles drops the whole guild
+        cache.invalidate(guild, SELF);
+        Assertions.assertTrue(cache.shouldPerformAutomod(first, channel));
+        Assertions.assertTrue(cache.shouldPerformAutomod(second, channel));
+        Assertions.assertEquals(5, checks(first));
+        Assertions.assertEquals(3, checks(second));
+    }
+
+    @Test
+    void testWithoutChannel() {
+        // Dehoisting checks the member without a channel, which isn't the same verdict as in an ignored channel
+        Member member = member(100);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertFalse(cache.shouldPerformAutomod(member, ignoredChannel));
+            Assertions.assertTrue(cache.shouldPerformAutomod(member, null));
+            Assertions.assertTrue(cache.shouldPerformAutomod(member, channel));
+        }
+
+        Assertions.assertEquals(3, checks(member));
+
+        // The member's own ID is the key of their verdict without a channel, and it is dropped like the others
+        cache.invalidate(guild, member.getIdLong());
+        Assertions.assertFalse(cache.shouldPerformAutomod(member, ignoredChannel));
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, null));
+        Assertions.assertEquals(5, checks(member));
+
+        // A bot is exempt everywhere, including without a channel
+        Member bot = member(200, true);
+        Assertions.assertFalse(cache.shouldPerformAutomod(bot, null));
+        Assertions.assertFalse(cache.shouldPerformAutomod(bot, null));
+        Assertions.assertEquals(1, checks(bot));
+    }
+
+    @Test
+    void testInvalidateDuringCheck() {
+        Member member = member(100);
+        Member other = member(101);
+
+        // The verdict is still returned, but not kept, as it may have been worked out from what was just changed
+        duringCheck = () -> cache.invalidate(GUILD);
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, channel));
+        duringCheck = () -> {};
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, channel));
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, channel));
+        Assertions.assertEquals(2, checks(member));
+
+        // The same goes for a verdict worked out while another member's roles changed
+        duringCheck = () -> cache.invalidate(guild, other.getIdLong());
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, null));
+        duringCheck = () -> {};
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, null));
+        Assertions.assertTrue(cache.shouldPerformAutomod(member, null));
+        Assertions.assertEquals(4, checks(member));
+
+        // And for a guild that was forgotten in the meantime
+        duringCheck = () -> cache.remove(GUILD);
+        Assertions.assertTrue(cache.shouldPerformAutomod(other, channel));
+        duringCheck = () -> {};
+        Assertions.assertTrue(cache.shouldPerformAutomod(other, channel));
+        Assertions.assertTrue(cache.shouldPerformAutomod(other, channel));
+        Assertions.assertEquals(2, checks(other));
+    }
+
+    private int checks(Member member) {
+        return checks.getOrDefault(member.getIdLong(), 0);
+    }
+
+    private Member member(long id) {
+        return member(id, false);
+    }
+
+    private Member member(long id, boolean bot) {
+        User user = proxy(User.class, Map.of("getIdLong", id, "isBot", bot));
+        return (Member) Proxy.newProxyInstance(Member.class.getClassLoader(), new Class<?>[]{Member.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getIdLong" -> id;
+            case "getGuild" -> guild;
+            case "getUser" -> {
+                // Looking at the user is the first thing a check does
+                checks.merge(id, 1, Integer::sum);
+                duringCheck.run();
+                yield user;
+            }
+            case "canInteract", "hasPermission" -> id == SELF;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Map<String, Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (!answers.containsKey(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            return answers.get(method.getName());
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.jagrosh.vortex.automod;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RegexLiteralsTest {
+    /**
+     * @param regex The pattern
+     * @param literal The literal that should be found, or null if none should be
+     * @param text Some text the pattern matches
+     */
+    private record Case(String regex, String literal, String text) {}
+
+    private static final List<Case> CASES = List.of(
+            new Case("hello", "hello", "well hello there"),
+            new Case("HeLLo", "hello", "HELLO"),
+            new Case("", null, "anything"),
+
+            // quantifiers
+            new Case("hel+o", "hel", "helllllo"),
+            new Case("colou?r", "colo", "color and colour"),
+            new Case("ab*c", "a", "ac abbbc"),
+            new Case("a?", null, "a"),
+            new Case("x{0}abc", "abc", "abc"),
+            new Case("ab{0}cd", "cd", "acd"),
+            new Case("(ab){0}cd", "cd", "cd"),
+            new Case("ab{2,3}cd", "ab", "abbbcd"),
+            new Case("ab{0,3}cd", "cd", "acd abbcd"),
+            new Case("ab+?c", "ab", "abbc"),
+            new Case("ab*+c", "a", "abbc"),
+            new Case("a\\.{2}b", "a.", "a..b"),
+
+            // alternation
+            new Case("foo|bar", null, "bar"),
+            new Case("(foo|bar)baz", "baz", "foobaz barbaz"),
+            new Case("spam(?:eggs|ham)+", "spam", "spamhameggs"),
+
+            // quoting and comment mode
+            new Case("\\Qa.b\\E", null, "a.b"),
+            new Case("ab\\Q*\\E", null, "ab*"),
+            new Case("(?x)a b c", null, "abc"),
+            new Case("(?ix:a b)cde", null, "abcde"),
+            new Case("x(?x: y )z", null, "xyz"),
+
+            // escapes
+            new Case("a\\.b", "a.b", "a.b"),
+            new Case("\\\\path", "\\path", "c:\\path"),
+            new Case("\\d+abc", "abc", "123abc"),
+            new Case("\\x41bc", "bc", "abc"),
+            new Case("\\x{41}bc", "bc", "abc"),
+            new Case("\\u0041bc", "bc", "abc"),
+            new Case("\\p{L}xyz", "xyz", "axyz"),
+            new Case("\\pLxyz", "xyz", "axyz"),
+            new Case("\\bword\\b", "word", "a word here"),
+            new Case("(a)\\1bc", "bc", "aabc"),
+            new Case("(?<n>a)\\k<n>bc", "bc", "aabc"),
+            new Case("\\0101bc", "bc", "abc"),
+            new Case("\\tab", "ab", "\tab"),
+
+            // classes
+            new Case("[abc]def", "def", "bdef"),
+            new Case("[]a]xy", "xy", "]xy"),
+            new Case("[^]]zz", "zz", "azz"),
+            new Case("[a[b]]cc", "cc", "bcc"),
+            new Case("[\\]]q", "q", "]q"),
+            new Case("[a-z]+ing", "ing", "testing"),
+            new Case("a.c", "a", "abc"),
+            new Case("^start", "start", "start here"),
+            new Case("end$", "end", "the end"),
+
+            // lookarounds and inline flags
+            new Case("(?<=foo)bar", "bar", "foobar"),
+            new Case("foo(?=bar)", "foo", "foobar"),
+            new Case("foo(?!bar)", "foo", "foobaz"),
+            new Case("(?<!x)yz", "yz", "ayz"),
+            new Case("(?i)spam", "spam", "SPAM"),
+            new Case("(?-i)spam", "spam", "spam"),
+            new Case("(?s)a.b", "a", "a\nb"),
+
+            // only ASCII is folded by default
+            new Case("caf\u00e9s", "caf", "caf\u00e9s"),
+            new Case("\u00e9tude", "tude", "\u00c9tude")
+    );
+
+    @Test
+    void testCases() {
+        for (Case c : CASES) {
+            Assertions.assertEquals(c.literal(), RegexLiterals.requiredLiteral(c.regex()), () -> "Literal of " + c.regex());
+
+            Pattern pattern = Pattern.compile(c.regex(), Pattern.CASE_INSENSITIVE);
+            String lower = c.text().toLowerCase();
+            Matcher m = pattern.matcher(lower);
+            Assertions.assertTrue(m.find(), () -> c.regex() + " doesn't match " + c.text());
+            do {
+                if (c.literal() != null) {
+                    String match = m.group();
+                    Assertions.assertTrue(match.contains(c.literal()), () -> "Match " + match + " of " + c.regex() + " doesn't contain " + c.literal());
+                }
+            } while (m.find());
+        }
+    }
+}
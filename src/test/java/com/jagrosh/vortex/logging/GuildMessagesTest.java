@@ -0,0 +1,164 @@
+package com.jagrosh.vortex.logging;
+
+import com.jagrosh.vortex.logging.MessageCache.CachedMessage;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class GuildMessagesTest {
+    private static final long START = 1700000000000L;
+
+    @Test
+    void testMatchesList() {
+        Random random = new Random(22);
+        GuildMessages messages = new GuildMessages(1, new AtomicLong());
+        // Every cached message in the order it was first cached, which edits don't change
+        Map<Long, Entry> model = new LinkedHashMap<>();
+        long bytes = 0;
+        long next = id(0);
+        for (int i = 0; i < 50_000; i++) {
+            int op = random.nextInt(100);
+            if (op < 55 || model.isEmpty()) {
+                // Mostly new messages, sometimes an old one that is only cached once it is edited
+                long id = random.nextInt(10) == 0 ? next - (1L + random.nextInt(2000) << 22) : (next += 1L + random.nextInt(3) << 22);
+                Entry entry = new Entry(id, 100 + random.nextInt(12), 200 + random.nextInt(6), "message " + i);
+                Entry previous = model.get(id);
+                CachedMessage replaced = messages.put(id, previous == null ? entry.author : previous.author, previous == null ? entry.channel : previous.channel, entry.encode());
+                if (previous == null) {
+                    Assertions.assertNull(replaced);
+                    bytes += entry.encode().length + GuildMessages.ENTRY_OVERHEAD;
+                    model.put(id, entry);
+                } else {
+                    Assertions.assertEquals(previous.content, replaced.getContentRaw());
+                    Entry edited = new Entry(id, previous.author, previous.channel, entry.content);
+                    bytes += edited.encode().length - previous.encode().length;
+                    model.put(id, edited);
+                }
+            } else if (op < 85) {
+                long id = random.nextBoolean() ? pick(model, random) : next + (1L << 22);
+                Entry removed = model.remove(id);
+                CachedMessage cached = messages.remove(id);
+                if (removed == null) {
+                    Assertions.assertNull(cached);
+                } else {
+                    Assertions.assertEquals(removed.content, cached.getContentRaw());
+                    bytes -= removed.encode().length + GuildMessages.ENTRY_OVERHEAD;
+                }
+            } else if (op < 87) {
+                long limit = bytes * random.nextInt(100) / 100;
+                int dropped = 0;
+                while (bytes > limit) {
+                    Entry oldest = model.remove(model.keySet().iterator().next());
+                    bytes -= oldest.encode().length + GuildMessages.ENTRY_OVERHEAD;
+                    dropped++;
+                }
+
+                Assertions.assertEquals(dropped, messages.trim(limit));
+            } else {
+                check(messages, model, random);
+            }
+
+            Assertions.assertEquals(model.size(), messages.size());
+            Assertions.assertEquals(bytes, messages.bytes());
+        }
+    }
+
+    @Test
+    void testMessageCache() {
+        Guild guild = proxy(Guild.class, Map.of("getIdLong", 1L));
+        MessageCache cache = new MessageCache(1 << 20);
+        for (int i = 1; i <= 10; i++) {
+            cache.putMessage(message(guild, id(i * 60_000), 100 + i % 2, 200 + i % 3, "message " + i));
+        }
+
+        cache.pullMessage(guild, id(7 * 60_000));
+        OffsetDateTime since = OffsetDateTime.ofInstant(Instant.ofEpochMilli(START + 5 * 60_000), ZoneOffset.UTC);
+        Assertions.assertEquals(List.of("message 5", "message 9"), contents(cache.getMessagesByAuthor(guild, 101, since)));
+        Assertions.assertEquals(List.of("message 6", "message 8", "message 10"), contents(cache.getMessagesByAuthor(guild, 100, since)));
+        Assertions.assertEquals(Map.of(200L, List.of(id(6 * 60_000)), 201L, List.of(id(10 * 60_000)), 202L, List.of(id(8 * 60_000))), cache.getMessageIdsByAuthor(guild, 100, since));
+        Assertions.assertEquals(List.of("message 4", "message 10"), contents(cache.getMessagesInChannel(guild, 201, 2)));
+        Assertions.assertEquals(List.of("message 1", "message 4", "message 10"), contents(cache.getMessagesInChannel(guild, 201, 10)));
+        Assertions.assertEquals(List.of(), contents(cache.getMessagesInChannel(proxy(Guild.class, Map.of("getIdLong", 2L)), 201, 10)));
+    }
+
+    /**
+     * Compares the author and channel lookups of a random author and channel with going through the whole list
+     */
+    private static void check(GuildMessages messages, Map<Long, Entry> model, Random random) {
+        long author = 100 + random.nextInt(12);
+        long channel = 200 + random.nextInt(6);
+        long minId = model.isEmpty() ? 0 : pick(model, random) + (random.nextInt(3) - 1);
+        int limit = 1 + random.nextInt(20);
+
+        List<Entry> byAuthor = model.values().stream().filter(e -> e.author == author && e.id >= minId).collect(Collectors.toList());
+        Assertions.assertEquals(byAuthor.stream().map(e -> e.content).collect(Collectors.toList()), contents(messages.byAuthor(author, minId)));
+
+        Map<Long, List<Long>> idsByAuthor = new LinkedHashMap<>();
+        byAuthor.forEach(e -> idsByAuthor.computeIfAbsent(e.channel, c -> new ArrayList<>()).add(e.id));
+        Assertions.assertEquals(idsByAuthor, messages.idsByAuthor(author, minId));
+
+        List<String> byChannel = model.values().stream().filter(e -> e.channel == channel).map(e -> e.content).collect(Collectors.toList());
+        Assertions.assertEquals(byChannel.subList(Math.max(0, byChannel.size() - limit), byChannel.size()), contents(messages.byChannel(channel, limit)));
+    }
+
+    private static long pick(Map<Long, Entry> model, Random random) {
+        List<Long> ids = new ArrayList<>(model.keySet());
+        return ids.isEmpty() ? 1 : ids.get(random.nextInt(ids.size()));
+    }
+
+    private static List<String> contents(List<CachedMessage> messages) {
+        return messages.stream().map(CachedMessage::getContentRaw).collect(Collectors.toList());
+    }
+
+    private static long id(long millis) {
+        return TimeUtil.getDiscordTimestamp(START + millis);
+    }
+
+    private static Message message(Guild guild, long id, long author, long channel, String content) {
+        User user = proxy(User.class, Map.of("getIdLong", author, "getName", "user", "getDiscriminator", "0000"));
+        return proxy(Message.class, Map.of(
+                "getIdLong", id,
+                "getGuild", guild,
+                "getAuthor", user,
+                "getChannel", proxy(MessageChannelUnion.class, Map.of("getIdLong", channel)),
+                "getContentRaw", content,
+                "getAttachments", Collections.emptyList()));
+    }
+
+    /**
+     * @return An implementation of the interface that answers the given methods, and throws on any other
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Map<String, Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (!answers.containsKey(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            return answers.get(method.getName());
+        });
+    }
+
+    private record Entry(long id, long author, long channel, String content) {
+        byte[] encode() {
+            return MessageCodec.encode("user", "0000", List.of(), content);
+        }
+    }
+}
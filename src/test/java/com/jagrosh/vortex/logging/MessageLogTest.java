@@ -0,0 +1,183 @@
+package com.jagrosh.vortex.logging;
+
+import com.jagrosh.vortex.logging.MessageCache.CachedMessage;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class MessageLogTest {
+    private static final long BASE = 1100000000000000000L;
+
+    @Test
+    void testReplayAfterReopen() throws IOException {
+        Path directory = Files.createTempDirectory("message-log");
+        try {
+            MessageLog log = open(directory, 64 * 1024, 4);
+            for (int i = 1; i <= 100; i++) {
+                put(log, i, "message " + i);
+            }
+
+            log.remove(id(10), true);
+            put(log, 20, "edited");
+            log.close();
+
+            MessageLog reopened = open(directory, 64 * 1024, 4);
+            Assertions.assertEquals(99, reopened.size());
+            Assertions.assertNull(reopened.find(id(10)));
+            Assertions.assertEquals("edited", reopened.find(id(20)).getContentRaw());
+            CachedMessage message = reopened.find(id(50));
+            Assertions.assertEquals("message 50", message.getContentRaw());
+            Assertions.assertEquals(id(50), message.getIdLong());
+            Assertions.assertEquals(author(50), message.getAuthorId());
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void testTornRecord() throws IOException {
+        Path directory = Files.createTempDirectory("message-log");
+        try {
+            MessageLog log = open(directory, 64 * 1024, 4);
+            for (int i = 1; i <= 3; i++) {
+                put(log, i, "message " + i);
+            }
+
+            log.close();
+
+            // A record cut short before its type was written, with what looks like a record of message 4 in it, right
+            // where the next record will end
+            byte[] next = encode("message 5");
+            byte[] hidden = encode("message 4");
+            Path segment = segments(directory).get(0);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                int end = 8;
+                while (buffer.get(end) != 0) {
+                    end += 5 + buffer.getInt(end + 1);
+                }
+
+                buffer.put(end, (byte) 0);
+                buffer.putInt(end + 1, 200);
+                buffer.position(end + 5 + 32 + next.length);
+                buffer.put((byte) 1);
+                buffer.putInt(32 + hidden.length);
+                buffer.putLong(1).putLong(id(4)).putLong(author(4)).putLong(2);
+                buffer.put(hidden);
+                buffer.force();
+            }
+
+            MessageLog reopened = open(directory, 64 * 1024, 4);
+            Assertions.assertEquals(3, reopened.size());
+            Assertions.assertNull(reopened.find(id(4)));
+            put(reopened, 5, "message 5");
+            reopened.close();
+
+            MessageLog again = open(directory, 64 * 1024, 4);
+            Assertions.assertEquals(4, again.size());
+            Assertions.assertNull(again.find(id(4)));
+            Assertions.assertEquals("message 5", again.find(id(5)).getContentRaw());
+            Assertions.assertEquals("message 3", again.find(id(3)).getContentRaw());
+            again.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void testDropRemovesIndexEntries() throws IOException {
+        Path directory = Files.createTempDirectory("message-log");
+        try {
+            MessageLog log = open(directory, 1024, 2);
+            for (int i = 1; i <= 100; i++) {
+                put(log, i, "message " + i);
+            }
+
+            // Logged again after its first record is long gone, which dropping that record's segment must not undo
+            put(log, 1, "again");
+            log.close();
+
+            Assertions.assertEquals(2, segments(directory).size());
+            Assertions.assertEquals("again", log.find(id(1)).getContentRaw());
+            Assertions.assertNull(log.find(id(2)));
+            Assertions.assertEquals("message 100", log.find(id(100)).getContentRaw());
+            int found = found(log);
+            Assertions.assertTrue(found > 1 && found < 100);
+            Assertions.assertEquals(found, log.size());
+
+            MessageLog reopened = open(directory, 1024, 2);
+            Assertions.assertEquals(found, reopened.size());
+            Assertions.assertEquals(found, found(reopened));
+            Assertions.assertEquals("again", reopened.find(id(1)).getContentRaw());
+            reopened.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static MessageLog open(Path directory, int segmentSize, int segments) {
+        Config config = ConfigFactory.parseMap(Map.of(
+                "directory", directory.toString(),
+                "segment-size", segmentSize,
+                "segments", segments,
+                "queue-size", 1000));
+        return new MessageLog(config);
+    }
+
+    private static void put(MessageLog log, int i, String content) {
+        log.put(1, id(i), author(i), 2, encode(content));
+    }
+
+    private static byte[] encode(String content) {
+        return MessageCodec.encode("user", "0", List.of(), content);
+    }
+
+    private static long id(int i) {
+        return BASE + ((long) i << 22);
+    }
+
+    private static long author(int i) {
+        return 1000 + i % 7;
+    }
+
+    /**
+     * @return How many of the messages that were put can be found
+     */
+    private static int found(MessageLog log) {
+        int found = 0;
+        for (int i = 1; i <= 100; i++) {
+            if (log.find(id(i)) != null) {
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}